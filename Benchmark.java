@@ -0,0 +1,384 @@
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+public class Benchmark
+{
+    /* OVERVIEW:
+     * Micro benchmarks of the graph and of SocialNetwork, without dependencies.
+     * Every benchmark runs a few unmeasured warm up rounds and then a few
+     * measured rounds of operations on graphs produced by GraphGenerator, for
+     * every model and size; each operation is timed on its own. Reported are:
+     *  - throughput (operations per second, timer overhead included);
+     *  - latency percentiles of single operations, in microseconds;
+     *  - bytes allocated per operation by the benchmark thread, as reported by
+     *    com.sun.management.ThreadMXBean (-1 if unsupported).
+     * A round may set its state up before being measured (e.g. the empty graph
+     * edges are added to), which is neither timed nor counted.
+     * Results are meant to be compared across runs on the same machine; the JIT
+     * may still optimize differently than in a real workload.
+     *
+     * usage: java [-ea] Benchmark [--sizes n,n,...] [--rounds r] [--both] [--orderings]
+     *   --both runs the whole suite twice, in child JVMs started without and
+     *   with assertions (-ea), so that the cost of the invariant checks shows.
+     *   --orderings runs instead BFS and diameter workloads on the snapshot of
+     *   every graph renumbered by each VertexOrdering. Java cannot read hardware
+     *   counters, so locality is reported through the 64 byte lines of an int[]
+     *   indexed by id that scanning an adjacency touches per arc, and through
+     *   the mean log2 of the id gap of an arc; run it under
+     *   perf stat -e cache-misses for the actual miss counts.
+     */
+
+    private static final String[] MODELS = { "random-friends", "erdos-renyi", "barabasi-albert" };
+    private static final int FRIENDS = 5;  // average friendships added per user
+
+    private static volatile long sink;     // keeps results alive
+
+    // A measured operation: setup() runs before every round, run(i) is the i-th
+    // operation of the round
+    private static abstract class Workload
+    {
+        void setup() { }
+        abstract long run(int i);
+    }
+
+    private static int rounds = 5;
+
+    private static GraphGenerator generate(String model, int n)
+    {
+        GraphGenerator generator = new GraphGenerator(n);
+        switch (model)
+        {
+            case "random-friends":  return generator.randomFriends(n, FRIENDS);
+            case "erdos-renyi":     return generator.erdosRenyi(n, FRIENDS * n);
+            default:                return generator.barabasiAlbert(n, FRIENDS);
+        }
+    }
+
+    private static SocialNetwork network(GraphGenerator generator)
+    {
+        SocialNetwork network = new SocialNetwork(1);
+        String[] labels = generator.labels();
+        for (String label : labels) network.addUser(label);
+        for (int e = 0; e < generator.sources().length; e++)
+            network.addFriendship(labels[generator.sources()[e]], labels[generator.targets()[e]]);
+        return network;
+    }
+
+    private static long allocated()
+    {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+    }
+
+    // Runs 2 warm up and rounds measured rounds of operations each, then prints a line
+    private static void measure(String name, String model, int n, int operations, Workload workload)
+    {
+        for (int round = 0; round < 2; round++)
+        {
+            workload.setup();
+            for (int i = 0; i < operations; i++) sink += workload.run(i);
+        }
+
+        long[] latencies = new long[rounds * operations];
+        long elapsed = 0, bytes = 0;
+        boolean allocation = allocated() >= 0;
+        for (int round = 0; round < rounds; round++)
+        {
+            workload.setup();
+            long before = allocated(), start = System.nanoTime();
+            for (int i = 0; i < operations; i++)
+            {
+                long t = System.nanoTime();
+                sink += workload.run(i);
+                latencies[round * operations + i] = System.nanoTime() - t;
+            }
+            elapsed += System.nanoTime() - start;
+            bytes += allocated() - before;
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf("%-28s %-16s %8d %14.1f %10.2f %10.2f %10.2f %10.2f %12.1f%n",
+                name, model, n, latencies.length / (elapsed / 1e9),
+                percentile(latencies, 0.50), percentile(latencies, 0.90),
+                percentile(latencies, 0.99), percentile(latencies, 0.999),
+                allocation ? (double) bytes / latencies.length : -1.0);
+    }
+
+    // Returns the given percentile of sorted, in microseconds
+    private static double percentile(long[] sorted, double p)
+    {
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))] / 1e3;
+    }
+
+    private static void suite(int[] sizes)
+    {
+        boolean assertions = false;
+        assert assertions = true;
+        System.out.println("assertions " + (assertions ? "enabled" : "disabled") + ", " + rounds + " rounds, " +
+                Runtime.getRuntime().availableProcessors() + " processors, java " + System.getProperty("java.version"));
+        System.out.printf("%-28s %-16s %8s %14s %10s %10s %10s %10s %12s%n",
+                "benchmark", "model", "users", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "B/op");
+
+        for (int n : sizes)
+        {
+            for (String model : MODELS)
+            {
+                final GraphGenerator generator = generate(model, n);
+                final String[] labels = generator.labels();
+                final int[] sources = generator.sources(), targets = generator.targets();
+                final int m = sources.length;
+
+                measure("HashGraph.addEdge", model, n, m, new Workload()
+                {
+                    HashGraph<String> graph;
+                    @SuppressWarnings({"unchecked", "rawtypes"}) Edge<String>[] edges = new Edge[m];
+                    {
+                        for (int e = 0; e < m; e++) edges[e] = new Edge<>(labels[sources[e]], labels[targets[e]]);
+                    }
+                    void setup()
+                    {
+                        graph = new HashGraph<>(n);
+                        for (String label : labels) graph.addNode(label);
+                    }
+                    long run(int i) { graph.addEdge(edges[i]); return i; }
+                });
+
+                measure("HashGraph.addEdge(E, E)", model, n, m, new Workload()
+                {
+                    HashGraph<String> graph;
+                    void setup()
+                    {
+                        graph = new HashGraph<>(n);
+                        for (String label : labels) graph.addNode(label);
+                    }
+                    long run(int i) { graph.addEdge(labels[sources[i]], labels[targets[i]]); return i; }
+                });
+
+                measure("HashNode.addConnection", model, n, m, new Workload()
+                {
+                    HashNode<String>[] nodes;
+                    @SuppressWarnings({"unchecked", "rawtypes"})
+                    void setup()
+                    {
+                        nodes = new HashNode[n];
+                        for (int v = 0; v < n; v++) nodes[v] = new HashNode<>(labels[v]);
+                    }
+                    long run(int i) { nodes[sources[i]].addConnection(labels[targets[i]]); return i; }
+                });
+
+                final SocialNetwork network = network(generator);
+                final int queries = Math.max(100, Math.min(20000, 2_000_000 / n));
+                for (SocialNetwork.SearchMode mode : SocialNetwork.SearchMode.values())
+                {
+                    measure("shortestPath " + mode, model, n, queries, new Workload()
+                    {
+                        SplittableRandom random;
+                        void setup()
+                        {
+                            network.setSearchMode(mode);
+                            random = new SplittableRandom(7);
+                        }
+                        long run(int i) { return network.shortestPath(labels[random.nextInt(n)], labels[random.nextInt(n)]); }
+                    });
+                }
+
+                measure("addFriendship (existing)", model, n, m, new Workload()
+                {
+                    long run(int i) { network.addFriendship(labels[sources[i]], labels[targets[i]]); return i; }
+                });
+
+                measure("getFriends", model, n, 100000, new Workload()
+                {
+                    long run(int i)
+                    {
+                        long friends = 0;
+                        for (String friend : network.getFriends(labels[i % n])) friends += friend.length();
+                        return friends;
+                    }
+                });
+
+                measure("forEachFriend", model, n, 100000, new Workload()
+                {
+                    long friends;
+                    final Consumer<String> counter = friend -> friends += friend.length();
+                    long run(int i) { network.forEachFriend(labels[i % n], counter); return friends; }
+                });
+
+                measure("randomUser", model, n, 100000, new Workload()
+                {
+                    long run(int i) { return network.randomUser().length(); }
+                });
+
+                measure("exactDiameter", model, n, 1, new Workload()
+                {
+                    long run(int i) { return network.exactDiameter(); }
+                });
+
+                final CompactGraph<String> snapshot = generator.graph().freeze();
+                final int[] row = new int[n];
+                final int rows = Math.max(10, Math.min(1000, 10_000_000 / Math.max(1, n * FRIENDS)));
+                measure("distances BFS", model, n, rows, new Workload()
+                {
+                    final BreadthFirstSearch search = new BreadthFirstSearch(snapshot);
+                    long run(int i) { return search.distances((int) ((long) i * 7919 % n), row); }
+                });
+                measure("distances direction-opt.", model, n, rows, new Workload()
+                {
+                    final DirectionOptimizingBFS search = new DirectionOptimizingBFS(snapshot);
+                    long run(int i) { return search.distances((int) ((long) i * 7919 % n), row); }
+                });
+
+                // friendships weighing 1 .. 10, queried between random pairs
+                final HashGraph<String> weighted = new HashGraph<>(n);
+                final SplittableRandom weights = new SplittableRandom(n);
+                for (String label : labels) weighted.addNode(label);
+                for (int e = 0; e < m; e++)
+                    weighted.addUndirectedEdge(labels[sources[e]], labels[targets[e]], 1 + weights.nextInt(10));
+                final CompactGraph<String> frozen = weighted.freeze();
+                final int paths = Math.max(100, Math.min(5000, 20_000_000 / Math.max(1, n * FRIENDS)));
+                final Dijkstra dijkstra = new Dijkstra(frozen);
+                measure("weighted Dijkstra", model, n, paths, new Workload()
+                {
+                    long run(int i) { return (long) dijkstra.distance((int) ((long) i * 7919 % n), (int) ((long) i * 104729 % n)); }
+                });
+                measure("weighted bidirectional", model, n, paths, new Workload()
+                {
+                    long run(int i) { return (long) dijkstra.bidirectionalDistance((int) ((long) i * 7919 % n), (int) ((long) i * 104729 % n)); }
+                });
+                final LandmarkIndex landmarks = new LandmarkIndex(frozen, 16);
+                measure("weighted ALT, 16 landmarks", model, n, paths, new Workload()
+                {
+                    long run(int i) { return (long) landmarks.distance((int) ((long) i * 7919 % n), (int) ((long) i * 104729 % n)); }
+                });
+
+                if (n <= 10000)
+                {
+                    measure("diameter (parallel)", model, n, 1, new Workload()
+                    {
+                        long run(int i) { return network.diameter(); }
+                    });
+                }
+            }
+        }
+    }
+
+    private static void orderings(int[] sizes)
+    {
+        System.out.println(rounds + " rounds, java " + System.getProperty("java.version"));
+        System.out.printf("%-28s %-16s %8s %14s %10s %10s %10s %10s %12s%n",
+                "benchmark", "model", "users", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "B/op");
+
+        for (int n : sizes)
+        {
+            for (String model : MODELS)
+            {
+                final CompactGraph<String> insertion = generate(model, n).graph().freeze();
+                for (int o = -1; o < VertexOrdering.values().length; o++)
+                {
+                    long start = System.nanoTime();
+                    final CompactGraph<String> graph = o < 0 ? insertion
+                            : insertion.relabel(VertexOrdering.values()[o].order(insertion));
+                    double relabeling = (System.nanoTime() - start) / 1e6;
+                    final String name = o < 0 ? "insertion" : VertexOrdering.values()[o].toString();
+                    // lines: distinct 64 byte lines of an int[] indexed by id that
+                    // scanning an adjacency touches, e.g. in the distance array
+                    long lines = 0, arcs = 0;
+                    double gaps = 0;
+                    int[] adjacency = new int[16];
+                    for (int v = 0; v < graph.size(); v++)
+                    {
+                        int degree = graph.degree(v);
+                        if (adjacency.length < degree) adjacency = new int[2 * degree];
+                        for (int i = 0; i < degree; i++) adjacency[i] = graph.neighbor(v, i);
+                        Arrays.sort(adjacency, 0, degree);
+                        for (int i = 0; i < degree; i++, arcs++)
+                        {
+                            if (i == 0 || adjacency[i] >> 4 != adjacency[i-1] >> 4) lines++;
+                            gaps += 32 - Integer.numberOfLeadingZeros(Math.abs(v - adjacency[i]));
+                        }
+                    }
+                    System.out.printf("%-28s %-16s %8d lines/arc %5.3f, mean log2 gap %5.2f, relabeled in %.1f ms%n",
+                            name, model, n, (double) lines / Math.max(1, arcs), gaps / Math.max(1, arcs), relabeling);
+
+                    final BreadthFirstSearch search = new BreadthFirstSearch(graph);
+                    final int searches = Math.max(10, Math.min(1000, 10_000_000 / Math.max(1, n * FRIENDS)));
+                    measure("eccentricity " + name, model, n, searches, new Workload()
+                    {
+                        SplittableRandom random;
+                        void setup() { random = new SplittableRandom(7); }
+                        long run(int i) { return search.eccentricity(random.nextInt(n)); }
+                    });
+                    if (n <= 10000) // iFUB needs up to n searches on random graphs
+                    {
+                        measure("exactDiameter " + name, model, n, 1, new Workload()
+                        {
+                            long run(int i) { return new FringeDiameter(graph).compute(0); }
+                        });
+                    }
+                }
+            }
+        }
+    }
+
+    // Runs this class again in a child JVM with the given extra JVM options
+    private static void child(String option, List<String> args) throws Exception
+    {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        if (!option.isEmpty()) command.add(option);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("Benchmark");
+        command.addAll(args);
+        int status = new ProcessBuilder(command).inheritIO().start().waitFor();
+        if (status != 0) throw new IllegalStateException("benchmark exited with status " + status);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        int[] sizes = { 1000, 10000, 100000 };
+        boolean both = false, orderings = false;
+        List<String> forwarded = new ArrayList<>();
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "--both":
+                    both = true;
+                    continue;
+                case "--orderings":
+                    orderings = true;
+                    forwarded.add(args[i]);
+                    continue;
+                case "--sizes":
+                    sizes = Arrays.stream(args[i+1].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--rounds":
+                    rounds = Integer.parseInt(args[i+1]);
+                    break;
+                default:
+                    System.err.println("usage: java [-ea] Benchmark [--sizes n,n,...] [--rounds r] [--both] [--orderings]");
+                    System.exit(1);
+            }
+            forwarded.add(args[i]);
+            forwarded.add(args[++i]);
+        }
+
+        if (both)
+        {
+            child("", forwarded);
+            System.out.println();
+            child("-ea", forwarded);
+        }
+        else if (orderings) orderings(sizes);
+        else suite(sizes);
+    }
+}
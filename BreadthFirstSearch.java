@@ -0,0 +1,257 @@
+import java.lang.IllegalArgumentException;
+import java.util.Arrays;
+
+public class BreadthFirstSearch
+{
+    /* OVERVIEW:
+     * The class BreadthFirstSearch represents a reusable BFS engine over the
+     * dense ids of an IndexedGraph.
+     * Scratch buffers are allocated once and shared by every search: a node v
+     * counts as visited by the current search iff stamp[v] == epoch, so starting
+     * a new search only increments epoch instead of clearing any array.
+     * Nodes are enqueued at most once per search, hence an int[] of length n
+     * is enough to back the FIFO queue without wrapping around.
+     * Bidirectional searches use a second set of buffers (the backward side),
+     * allocated on first use, and require a symmetric graph: <v,w> ∈ E' ⇒ <w,v> ∈ E'.
+     * After warm-up no search allocates any object.
+     * Instances are not thread safe: every thread needs its own engine.
+     *
+     * IR:  - graph ≠ null
+     *      - distance.length == stamp.length == queue.length ≥ graph.size()
+     *      - epoch > 0
+     *      - stamp[v] == epoch ⇒ distance[v] ≥ 0
+     *      - backStamp ≠ null ⇒ backDistance.length == backStamp.length ==
+     *                           backQueue.length == stamp.length
+     */
+
+    private IndexedGraph<?> graph;
+    private int[] distance;     // meaningful only where stamp[v] == epoch
+    private int[] stamp;
+    private int[] queue;
+    private int epoch;
+    private int visited;        // number of nodes reached by the last search
+
+    // backward side of bidirectional searches, null until first needed
+    private int[] backDistance;
+    private int[] backStamp;
+    private int[] backQueue;
+    private final int[] cursors = new int[4]; // forward head/tail, backward head/tail
+    private int shared;         // nodes reached by both sides of a bidirectional search
+
+    //REQUIRES: graph ≠ null
+    //EFFECTS:  Creates an engine for graph with buffers sized graph.size().
+    //          If graph == null        throws IllegalArgumentException (unchecked).
+    public BreadthFirstSearch(IndexedGraph<?> graph) throws IllegalArgumentException
+    {
+        distance = new int[0];
+        stamp = new int[0];
+        queue = new int[0];
+        reset(graph);
+    }
+
+    //REQUIRES: graph ≠ null
+    //MODIFIES: this
+    //EFFECTS:  Binds the engine to graph, growing the scratch buffers only if
+    //          they are smaller than graph.size().
+    //          If graph == null        throws IllegalArgumentException (unchecked).
+    public void reset(IndexedGraph<?> graph) throws IllegalArgumentException
+    {
+        if (graph == null) throw new IllegalArgumentException();
+        this.graph = graph;
+        if (stamp.length < graph.size())
+        {
+            distance = new int[graph.size()];
+            stamp = new int[graph.size()];
+            queue = new int[graph.size()];
+            backDistance = backStamp = backQueue = null;
+        }
+        else
+        {
+            Arrays.fill(stamp, 0);
+            if (backStamp != null) Arrays.fill(backStamp, 0);
+        }
+        epoch = 1;
+        visited = 0;
+    }
+
+    //EFFECTS: Returns the graph the engine is bound to
+    public IndexedGraph<?> graph()
+    {
+        return graph;
+    }
+
+    //EFFECTS: Returns the number of nodes reached by the last search
+    public int lastVisited()
+    {
+        return visited;
+    }
+
+    // Starts a new search, clearing stamps only when epoch overflows
+    private void nextEpoch()
+    {
+        if (++epoch == Integer.MAX_VALUE)
+        {
+            Arrays.fill(stamp, 0);
+            if (backStamp != null) Arrays.fill(backStamp, 0);
+            epoch = 1;
+        }
+    }
+
+    // Visits the nodes reachable from source in BFS order, stopping as soon as
+    // target (if ≥ 0) is reached. Returns the distance of the last node reached.
+    private int search(int source, int target)
+    {
+        nextEpoch();
+        int head = 0, tail = 0;
+        stamp[source] = epoch;
+        distance[source] = 0;
+        queue[tail++] = source;
+        int current = 0;
+
+        if (source == target) { visited = 1; return 0; }
+
+        while (head < tail)
+        {
+            int user = queue[head++];
+            current = distance[user];
+            int degree = graph.degree(user);
+
+            for (int i = 0; i < degree; i++)
+            {
+                int adjacent = graph.neighbor(user, i);
+                if (stamp[adjacent] != epoch)
+                {
+                    stamp[adjacent] = epoch;
+                    distance[adjacent] = current + 1;
+                    if (adjacent == target) { visited = tail + 1; return current + 1; }
+                    queue[tail++] = adjacent;
+                }
+            }
+        }
+        visited = tail;
+        return current;
+    }
+
+    //REQUIRES: 0 ≤ source, target < graph().size()
+    //EFFECTS:  Returns the number of hops of a shortest path from source to target,
+    //          or -1 if target is unreachable. The search stops as soon as target
+    //          is reached.
+    public int distance(int source, int target)
+    {
+        int d = search(source, target);
+        return stamp[target] == epoch ? d : -1;
+    }
+
+    //REQUIRES: 0 ≤ source < graph().size()
+    //EFFECTS:  Returns the eccentricity of source, i.e. the maximum number of hops
+    //          from source to any node reachable from it.
+    public int eccentricity(int source)
+    {
+        return search(source, -1);
+    }
+
+    //REQUIRES: 0 ≤ source < graph().size()
+    //          row ≠ null ∧ row.length ≥ graph().size()
+    //MODIFIES: row
+    //EFFECTS:  Sets row[v] to the number of hops from source to v, or -1 if v is
+    //          unreachable, ∀ 0 ≤ v < graph().size(). Returns the eccentricity of source.
+    public int distances(int source, int[] row)
+    {
+        int eccentricity = search(source, -1);
+        for (int v = 0; v < graph.size(); v++)
+            row[v] = stamp[v] == epoch ? distance[v] : -1;
+        return eccentricity;
+    }
+
+    //REQUIRES: 0 ≤ i < lastVisited()
+    //          the last search was started by eccentricity(int) or distances(int, int[])
+    //EFFECTS:  Returns the i-th node reached by the last search; nodes are returned
+    //          in BFS order, hence by non decreasing distance from the source.
+    public int reached(int i)
+    {
+        return queue[i];
+    }
+
+    //REQUIRES: 0 ≤ v < graph().size()
+    //EFFECTS:  Returns the number of hops from the source of the last search to v,
+    //          or -1 if the last search did not reach v.
+    public int distanceTo(int v)
+    {
+        return stamp[v] == epoch ? distance[v] : -1;
+    }
+
+    //REQUIRES: 0 ≤ source, target < graph().size()
+    //          graph() is symmetric
+    //EFFECTS:  Returns the number of hops of a shortest path from source to target,
+    //          or -1 if target is unreachable, growing one BFS frontier from source
+    //          and one from target, always a whole level of the smaller one, until
+    //          the two searches meet.
+    public int bidirectionalDistance(int source, int target)
+    {
+        if (backStamp == null)
+        {
+            backDistance = new int[stamp.length];
+            backStamp = new int[stamp.length];
+            backQueue = new int[stamp.length];
+        }
+        nextEpoch();
+        stamp[source] = epoch;
+        distance[source] = 0;
+        queue[0] = source;
+        backStamp[target] = epoch;
+        backDistance[target] = 0;
+        backQueue[0] = target;
+        cursors[0] = 0; cursors[1] = 1;
+        cursors[2] = 0; cursors[3] = 1;
+        shared = source == target ? 1 : 0;
+
+        int best = source == target ? 0 : -1;
+        while (best == -1 && cursors[0] < cursors[1] && cursors[2] < cursors[3])
+        {
+            if (cursors[1] - cursors[0] <= cursors[3] - cursors[2])
+                best = expand(stamp, distance, queue, backStamp, backDistance, 0);
+            else
+                best = expand(backStamp, backDistance, backQueue, stamp, distance, 2);
+        }
+        visited = cursors[1] + cursors[3] - shared;
+        return best;
+    }
+
+    // Expands the whole current level of one side of a bidirectional search,
+    // whose queue bounds are cursors[side] and cursors[side+1].
+    // Returns the length of the shortest path through the meeting nodes
+    // found at this level, or -1 if the two sides did not meet.
+    private int expand(int[] stamp, int[] distance, int[] queue,
+                       int[] otherStamp, int[] otherDistance, int side)
+    {
+        int head = cursors[side], tail = cursors[side+1], end = tail;
+        int best = -1;
+
+        while (head < end)
+        {
+            int user = queue[head++];
+            int current = distance[user];
+            int degree = graph.degree(user);
+
+            for (int i = 0; i < degree; i++)
+            {
+                int adjacent = graph.neighbor(user, i);
+                if (otherStamp[adjacent] == epoch)
+                {
+                    int length = current + 1 + otherDistance[adjacent];
+                    if (best == -1 || length < best) best = length;
+                }
+                if (stamp[adjacent] != epoch)
+                {
+                    stamp[adjacent] = epoch;
+                    distance[adjacent] = current + 1;
+                    queue[tail++] = adjacent;
+                    if (otherStamp[adjacent] == epoch) shared++;
+                }
+            }
+        }
+        cursors[side] = head;
+        cursors[side+1] = tail;
+        return best;
+    }
+}
@@ -0,0 +1,292 @@
+import java.lang.IllegalArgumentException;
+import java.lang.UnsupportedOperationException;
+import java.util.NoSuchElementException;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+
+public class CompactGraph<E> implements Graph<E>, IndexedGraph<E>, Iterable<E>
+{
+    /* OVERVIEW:
+     * The class CompactGraph<E> represents an immutable, read-optimized snapshot
+     * of a Graph<E>, as produced by HashGraph<E>.freeze().
+     * Every label is interned to a dense integer id in [0, n), and the outgoing
+     * connections of all nodes are stored in compressed sparse row (CSR) form:
+     * the adjacency of the node with id v is the slice
+     * targets[offsets[v] .. offsets[v+1]) of a single primitive array.
+     * Algorithms that only need ids (see SocialNetwork) can traverse the graph
+     * through degree(int) and neighbor(int, int) without touching any object.
+     * Weights, if any differs from Edge.DEFAULT_WEIGHT, are stored in the
+     * array weights parallel to targets.
+     *
+     * AF:  { <labels[v], { labels[targets[i]] : offsets[v] ≤ i < offsets[v+1] }>
+     *          : 0 ≤ v < labels.length }
+     *
+     * IR:  - labels ≠ null ∧ ids ≠ null ∧ offsets ≠ null ∧ targets ≠ null
+     *      - offsets.length == labels.length + 1
+     *      - offsets[0] == 0 ∧ offsets[labels.length] == targets.length
+     *      - offsets[v] ≤ offsets[v+1] ∀ 0 ≤ v < labels.length
+     *      - 0 ≤ targets[i] < labels.length ∀ 0 ≤ i < targets.length
+     *      - labels[v] ≠ null ∧ ids.get(labels[v]) == v ∀ 0 ≤ v < labels.length
+     *      - ids.size() == labels.length
+     *      - weights == null ∨ (weights.length == targets.length ∧
+     *        Edge.isWeight(weights[i]) ∀ 0 ≤ i < weights.length)
+     */
+
+    private final Object[] labels;              // id -> label
+    private final HashMap<E, Integer> ids;      // label -> id
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;             // null: every weight is Edge.DEFAULT_WEIGHT
+
+    // used to verify pre/post condition via assertions
+    private boolean repOk()
+    {
+        if (labels == null || ids == null || offsets == null || targets == null) return false;
+        if (weights != null && weights.length != targets.length) return false;
+        for (int i = 0; weights != null && i < weights.length; i++)
+            if (!Edge.isWeight(weights[i])) return false;
+        if (offsets.length != labels.length + 1) return false;
+        if (offsets[0] != 0 || offsets[labels.length] != targets.length) return false;
+
+        for (int v = 0; v < labels.length; v++)
+            if (offsets[v] > offsets[v+1]) return false;
+
+        for (int t : targets)
+            if (t < 0 || t >= labels.length) return false;
+
+        for (int v = 0; v < labels.length; v++)
+            if (labels[v] == null || !Integer.valueOf(v).equals(ids.get(labels[v]))) return false;
+
+        return ids.size() == labels.length;
+    }
+
+    //REQUIRES: arguments satisfy the IR (only the freeze() methods of HashGraph<E>
+    //          and GraphSnapshot<E>, and relabel(int[]), build instances)
+    //EFFECTS:  Wraps the given arrays without copying them.
+    CompactGraph(Object[] labels, HashMap<E, Integer> ids, int[] offsets, int[] targets)
+    {
+        this(labels, ids, offsets, targets, null);
+    }
+
+    //REQUIRES: arguments satisfy the IR
+    //EFFECTS:  Wraps the given arrays, weights included, without copying them.
+    CompactGraph(Object[] labels, HashMap<E, Integer> ids, int[] offsets, int[] targets, double[] weights)
+    {
+        this.labels = labels;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        assert(repOk());
+    }
+
+    //REQUIRES: order ≠ null
+    //          order is a permutation of [0, size()), e.g. from VertexOrdering
+    //EFFECTS:  Returns a new CompactGraph<E> with the same nodes and connections,
+    //          where the node with id order[v] gets the id v and every adjacency
+    //          is sorted by id, so that a traversal following order scans the
+    //          arrays almost sequentially.
+    //          If order == null ∨ order is not a permutation of [0, size())
+    //                                  throws IllegalArgumentException (unchecked).
+    public CompactGraph<E> relabel(int[] order) throws IllegalArgumentException
+    {
+        final int n = labels.length;
+        if (order == null || order.length != n) throw new IllegalArgumentException();
+        int[] inverse = new int[n];
+        Arrays.fill(inverse, -1);
+        for (int v = 0; v < n; v++)
+        {
+            if (order[v] < 0 || order[v] >= n || inverse[order[v]] != -1) throw new IllegalArgumentException();
+            inverse[order[v]] = v;
+        }
+
+        Object[] labels = new Object[n];
+        HashMap<E, Integer> ids = new HashMap<>(n + n / 3 + 1);
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[this.targets.length];
+        double[] weights = this.weights == null ? null : new double[this.weights.length];
+        long[] arcs = new long[0];  // target << 32 | position, to sort weights along
+        for (int v = 0; v < n; v++)
+        {
+            labels[v] = this.labels[order[v]];
+            ids.put(labelOf(order[v]), v);
+            int e = offsets[v], from = this.offsets[order[v]], to = this.offsets[order[v]+1];
+            if (weights == null)
+            {
+                for (int i = from; i < to; i++) targets[e + i - from] = inverse[this.targets[i]];
+                Arrays.sort(targets, e, e + to - from);
+            }
+            else
+            {
+                if (arcs.length < to - from) arcs = new long[to - from];
+                for (int i = from; i < to; i++) arcs[i - from] = (long) inverse[this.targets[i]] << 32 | i;
+                Arrays.sort(arcs, 0, to - from);
+                for (int i = 0; i < to - from; i++)
+                {
+                    targets[e + i] = (int) (arcs[i] >>> 32);
+                    weights[e + i] = this.weights[(int) arcs[i]];
+                }
+            }
+            offsets[v+1] = e + to - from;
+        }
+        return new CompactGraph<>(labels, ids, offsets, targets, weights);
+    }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void addNode(Node<E> node) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void addNode(E nodeLabel) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void addEdge(Edge<E> edge) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void removeNode(Node<E> node) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void removeNode(E nodeLabel) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void removeEdge(Edge<E> edge) { throw new UnsupportedOperationException(); }
+
+    //REQUIRES: nodeLabel ≠ null
+    //EFFECTS:  Returns true if nodeLabel has been interned, false otherwise.
+    //          If nodeLabel == null    throws IllegalArgumentException (unchecked).
+    public boolean containsNode(E nodeLabel) throws IllegalArgumentException
+    {
+        if (nodeLabel == null) throw new IllegalArgumentException();
+        return ids.containsKey(nodeLabel);
+    }
+
+    //EFFECTS: Returns the number of nodes n
+    public int size()
+    {
+        return labels.length;
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //EFFECTS:  Returns the id v of nodeLabel, or -1 if nodeLabel has not been interned.
+    //          If nodeLabel == null    throws IllegalArgumentException (unchecked).
+    public int indexOf(E nodeLabel) throws IllegalArgumentException
+    {
+        if (nodeLabel == null) throw new IllegalArgumentException();
+        Integer id = ids.get(nodeLabel);
+        return id == null ? -1 : id;
+    }
+
+    //REQUIRES: 0 ≤ id < size()
+    //EFFECTS:  Returns the label interned with the given id.
+    //          If id is out of bounds  throws IndexOutOfBoundsException (unchecked).
+    @SuppressWarnings("unchecked")
+    public E labelOf(int id)
+    {
+        return (E) labels[id];
+    }
+
+    //REQUIRES: 0 ≤ id < size()
+    //EFFECTS:  Returns the number of outgoing connections of the node with the given id.
+    public int degree(int id)
+    {
+        return offsets[id+1] - offsets[id];
+    }
+
+    //REQUIRES: 0 ≤ id < size()
+    //          0 ≤ i < degree(id)
+    //EFFECTS:  Returns the id of the i-th node adjacent to the node with the given id.
+    public int neighbor(int id, int i)
+    {
+        return targets[offsets[id] + i];
+    }
+
+    //REQUIRES: 0 ≤ id < size()
+    //          0 ≤ i < degree(id)
+    //EFFECTS:  Returns the weight of the connection towards neighbor(id, i).
+    public double weight(int id, int i)
+    {
+        return weights == null ? Edge.DEFAULT_WEIGHT : weights[offsets[id] + i];
+    }
+
+    //EFFECTS: Returns true if some weight differs from Edge.DEFAULT_WEIGHT
+    public boolean isWeighted()
+    {
+        return weights != null;
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //          containsNode(nodeLabel) == true
+    //EFFECTS:  Returns a read-only collection view over the adjacency of nodeLabel.
+    //          If nodeLabel == null    throws IllegalArgumentException
+    //          If containsNode(nodeLabel) == false
+    //                                  throws NoSuchElementException
+    public Collection<E> getAdjacency(E nodeLabel) throws NoSuchElementException, IllegalArgumentException
+    {
+        int id = indexOf(nodeLabel);
+        if (id == -1) throw new NoSuchElementException();
+        return new Adjacency(offsets[id], offsets[id+1]);
+    }
+
+    //EFFECTS: Returns a read-only iterator over the labels, in id order
+    public Iterator<E> iterator()
+    {
+        return new Iterator<E>()
+        {
+            private int next = 0;
+
+            public boolean hasNext() { return next < labels.length; }
+
+            public E next()
+            {
+                if (next >= labels.length) throw new NoSuchElementException();
+                return labelOf(next++);
+            }
+        };
+    }
+
+    //EFFECTS: Returns a string representation of the current class instance
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int v = 0; v < labels.length; v++)
+        {
+            sb.append(labels[v] + ": " + getAdjacency(labelOf(v)) + "\n");
+        }
+        return sb.toString();
+    }
+
+    // Read-only view over targets[from .. to)
+    private class Adjacency extends AbstractCollection<E>
+    {
+        private final int from, to;
+
+        Adjacency(int from, int to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int size() { return to - from; }
+
+        @Override
+        public Iterator<E> iterator()
+        {
+            return new Iterator<E>()
+            {
+                private int next = from;
+
+                public boolean hasNext() { return next < to; }
+
+                public E next()
+                {
+                    if (next >= to) throw new NoSuchElementException();
+                    return labelOf(targets[next++]);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import java.lang.IllegalArgumentException;
+import java.util.Arrays;
+
+public class ComponentIndex
+{
+    /* OVERVIEW:
+     * The class ComponentIndex represents the partition of the nodes [0, size())
+     * of a symmetric graph into connected components, as a union-find forest
+     * with union by size and path halving: both find and union cost O(α(n))
+     * amortized, so connections can be added one by one as the graph grows.
+     * Removing a connection may split a component, which a union-find cannot
+     * undo: the index must then be rebuilt, e.g. through of(IndexedGraph).
+     *
+     * AF:  { { w : find(w) == find(v) } : 0 ≤ v < size }
+     *
+     * IR:  - parent.length == sizes.length ≥ size
+     *      - 0 ≤ parent[v] < size ∀ 0 ≤ v < size, and following parent from any
+     *        v reaches a root r with parent[r] == r
+     *      - sizes[r] == |{ v : find(v) == r }| for every root r
+     *      - count == |{ r : parent[r] == r }|
+     */
+
+    private int[] parent;
+    private int[] sizes;        // meaningful for roots only
+    private int size;
+    private int count;          // number of components
+
+    //EFFECTS: Creates an empty index
+    public ComponentIndex()
+    {
+        this(16);
+    }
+
+    //REQUIRES: capacity ≥ 0
+    //EFFECTS:  Creates an empty index that can hold capacity nodes without growing.
+    //          If capacity < 0         throws IllegalArgumentException (unchecked).
+    public ComponentIndex(int capacity) throws IllegalArgumentException
+    {
+        if (capacity < 0) throw new IllegalArgumentException();
+        parent = new int[capacity];
+        sizes = new int[capacity];
+    }
+
+    //REQUIRES: graph ≠ null
+    //          graph is symmetric
+    //EFFECTS:  Returns the components of graph, whose node v is graph's id v.
+    //          If graph == null        throws IllegalArgumentException (unchecked).
+    public static ComponentIndex of(IndexedGraph<?> graph) throws IllegalArgumentException
+    {
+        if (graph == null) throw new IllegalArgumentException();
+        final int n = graph.size();
+        ComponentIndex index = new ComponentIndex(n);
+        for (int v = 0; v < n; v++) index.add();
+        for (int v = 0; v < n; v++)
+            for (int i = 0; i < graph.degree(v); i++) index.union(v, graph.neighbor(v, i));
+        assert(index.repOk());
+        return index;
+    }
+
+    // used to verify pre/post condition via assertions
+    boolean repOk()
+    {
+        if (parent.length != sizes.length || parent.length < size) return false;
+        int[] counted = new int[size];
+        int roots = 0;
+        for (int v = 0; v < size; v++)
+        {
+            if (parent[v] < 0 || parent[v] >= size) return false;
+            int r = v;
+            for (int steps = 0; parent[r] != r; steps++)
+            {
+                if (steps > size) return false; // cycle
+                r = parent[r];
+            }
+            counted[r]++;
+            if (parent[v] == v) roots++;
+        }
+        for (int v = 0; v < size; v++)
+            if (parent[v] == v && sizes[v] != counted[v]) return false;
+        return roots == count;
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Adds the node size() as a component on its own, returning it.
+    public int add()
+    {
+        if (size == parent.length)
+        {
+            parent = Arrays.copyOf(parent, Math.max(16, 2 * size));
+            sizes = Arrays.copyOf(sizes, parent.length);
+        }
+        parent[size] = size;
+        sizes[size] = 1;
+        count++;
+        return size++;
+    }
+
+    //REQUIRES: 0 ≤ v < size()
+    //MODIFIES: this
+    //EFFECTS:  Returns the representative of the component of v, i.e. the same
+    //          node for all the nodes of a component until the next union.
+    //          If v is out of bounds   throws IndexOutOfBoundsException (unchecked).
+    public int find(int v)
+    {
+        if (v < 0 || v >= size) throw new IndexOutOfBoundsException();
+        while (parent[v] != v)
+        {
+            parent[v] = parent[parent[v]];  // path halving
+            v = parent[v];
+        }
+        return v;
+    }
+
+    //REQUIRES: 0 ≤ v, w < size()
+    //MODIFIES: this
+    //EFFECTS:  Merges the components of v and w, returning false if they were the same.
+    //          If v or w is out of bounds
+    //                                  throws IndexOutOfBoundsException (unchecked).
+    public boolean union(int v, int w)
+    {
+        int a = find(v), b = find(w);
+        if (a == b) return false;
+        if (sizes[a] < sizes[b]) { int t = a; a = b; b = t; }
+        parent[b] = a;
+        sizes[a] += sizes[b];
+        count--;
+        return true;
+    }
+
+    //REQUIRES: 0 ≤ v, w < size()
+    //MODIFIES: this
+    //EFFECTS:  Returns true if v and w lie in the same component.
+    //          If v or w is out of bounds
+    //                                  throws IndexOutOfBoundsException (unchecked).
+    public boolean connected(int v, int w)
+    {
+        return find(v) == find(w);
+    }
+
+    //REQUIRES: 0 ≤ v < size()
+    //MODIFIES: this
+    //EFFECTS:  Returns the number of nodes in the component of v.
+    //          If v is out of bounds   throws IndexOutOfBoundsException (unchecked).
+    public int componentSize(int v)
+    {
+        return sizes[find(v)];
+    }
+
+    //EFFECTS: Returns the number of nodes
+    public int size()
+    {
+        return size;
+    }
+
+    //EFFECTS: Returns the number of components
+    public int count()
+    {
+        return count;
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Returns a new array holding the nodes grouped by component, and sets
+    //          start[c] to the position of the first node of the c-th component in
+    //          it, for 0 ≤ c < count(), and start[count()] to size(). Components
+    //          come by decreasing size, ties by representative.
+    //          If start == null ∨ start.length ≤ count()
+    //                                  throws IllegalArgumentException (unchecked).
+    public int[] components(int[] start) throws IllegalArgumentException
+    {
+        if (start == null || start.length <= count) throw new IllegalArgumentException();
+        int[] roots = new int[count];
+        for (int v = 0, c = 0; v < size; v++) if (find(v) == v) roots[c++] = v;
+        long[] keys = new long[count];   // by decreasing size, then representative
+        for (int c = 0; c < count; c++) keys[c] = (long) (size - sizes[roots[c]]) << 32 | roots[c];
+        Arrays.sort(keys);
+
+        int[] rank = new int[size];
+        start[0] = 0;
+        for (int c = 0; c < count; c++)
+        {
+            int r = (int) keys[c];
+            rank[r] = c;
+            start[c+1] = start[c] + sizes[r];
+        }
+        int[] next = Arrays.copyOf(start, count);
+        int[] nodes = new int[size];
+        for (int v = 0; v < size; v++) nodes[next[rank[find(v)]]++] = v;
+        return nodes;
+    }
+}
@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConcurrencyStress
+{
+    /* OVERVIEW:
+     * Stress test and throughput comparison for ConcurrentSocialNetwork.
+     * The stress phases hammer a network from many threads and then verify,
+     * once every thread is done, that the invariants of ConcurrentHashGraph hold,
+     * that every friendship is symmetric and that concurrent insertions lost
+     * nothing compared to a sequential SocialNetwork built from the same pairs.
+     * The throughput phase runs the same mixed workload of friendship writes and
+     * path queries on ConcurrentSocialNetwork and on two globally locked
+     * baselines, for an increasing number of threads.
+     *
+     * usage: java ConcurrencyStress [threads [seconds [write percentage]]]
+     */
+
+    // The operations exercised by the throughput phase
+    private interface Network
+    {
+        void addFriendship(String user1, String user2);
+        int shortestPath(String source, String destination);
+    }
+
+    // A SocialNetwork guarded by a single lock, i.e. what callers had to do so far
+    private static Network lockedSocialNetwork(List<String> names)
+    {
+        SocialNetwork network = new SocialNetwork();
+        for (String name : names) network.addUser(name);
+        return new Network()
+        {
+            public synchronized void addFriendship(String u, String w) { network.addFriendship(u, w); }
+            public synchronized int shortestPath(String s, String t) { return network.shortestPath(s, t); }
+        };
+    }
+
+    // A ConcurrentSocialNetwork guarded by a single lock, to isolate locking costs
+    private static Network lockedConcurrentNetwork(List<String> names)
+    {
+        ConcurrentSocialNetwork network = new ConcurrentSocialNetwork(names.size());
+        for (String name : names) network.addUser(name);
+        return new Network()
+        {
+            public synchronized void addFriendship(String u, String w) { network.addFriendship(u, w); }
+            public synchronized int shortestPath(String s, String t) { return network.shortestPath(s, t); }
+        };
+    }
+
+    private static Network concurrentNetwork(List<String> names)
+    {
+        ConcurrentSocialNetwork network = new ConcurrentSocialNetwork(names.size());
+        for (String name : names) network.addUser(name);
+        return new Network()
+        {
+            public void addFriendship(String u, String w) { network.addFriendship(u, w); }
+            public int shortestPath(String s, String t) { return network.shortestPath(s, t); }
+        };
+    }
+
+    // Runs body(t) on threads t = 0 .. threads-1, started together; rethrows
+    // the first failure
+    private interface Body
+    {
+        void run(int thread) throws Exception;
+    }
+
+    private static void parallel(int threads, Body body) throws Exception
+    {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            final int thread = t;
+            Thread worker = new Thread(() ->
+            {
+                try
+                {
+                    start.await();
+                    body.run(thread);
+                }
+                catch (Throwable e) { synchronized (failures) { failures.add(e); } }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) worker.join();
+        if (!failures.isEmpty()) throw new AssertionError("worker failed", failures.get(0));
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    // Every thread inserts its share of the same random friendships while the
+    // others run queries; the result must match a sequential SocialNetwork
+    private static void insertions(List<String> names, int threads, int friendships) throws Exception
+    {
+        SplittableRandom random = new SplittableRandom(42);
+        String[] sources = new String[friendships], targets = new String[friendships];
+        for (int i = 0; i < friendships; i++)
+        {
+            sources[i] = names.get(random.nextInt(names.size()));
+            targets[i] = names.get(random.nextInt(names.size()));
+        }
+
+        ConcurrentSocialNetwork network = new ConcurrentSocialNetwork();
+        for (String name : names) network.addUser(name);
+        LongAdder queries = new LongAdder();
+        parallel(threads, thread ->
+        {
+            SplittableRandom local = new SplittableRandom(thread);
+            for (int i = thread; i < friendships; i += threads)
+            {
+                network.addFriendship(sources[i], targets[i]);
+                if (i % 64 == 0)
+                {
+                    int d = network.shortestPath(sources[i], targets[i]);
+                    check(d >= 0 && d <= 1, "friendship not visible to its own writer");
+                    network.shortestPath(names.get(local.nextInt(names.size())), targets[i]);
+                    queries.increment();
+                }
+            }
+        });
+
+        SocialNetwork expected = new SocialNetwork();
+        for (String name : names) expected.addUser(name);
+        for (int i = 0; i < friendships; i++) expected.addFriendship(sources[i], targets[i]);
+
+        check(network.graph().repOk(), "invariant broken after concurrent insertions");
+        check(network.size() == new HashSet<>(names).size(), "users lost");
+        for (String name : names)
+        {
+            check(new HashSet<>(network.getFriends(name)).equals(new HashSet<>(expected.getFriends(name))),
+                  "friendships of " + name + " differ from a sequential run");
+        }
+        for (int i = 0; i < 1000; i++)
+        {
+            String s = names.get(random.nextInt(names.size())), t = names.get(random.nextInt(names.size()));
+            check(network.shortestPath(s, t) == expected.shortestPath(s, t), "wrong distance " + s + " -> " + t);
+        }
+        System.out.println("insertions: " + threads + " threads, " + friendships + " friendships, " +
+                queries.sum() + " concurrent queries: ok");
+    }
+
+    // Threads add and remove users and friendships at random over a small set of
+    // names, so that removals keep colliding with insertions
+    private static void churn(List<String> names, int threads, int operations) throws Exception
+    {
+        List<String> hot = names.subList(0, Math.min(names.size(), 200));
+        ConcurrentSocialNetwork network = new ConcurrentSocialNetwork();
+        AtomicInteger removals = new AtomicInteger();
+        parallel(threads, thread ->
+        {
+            SplittableRandom local = new SplittableRandom(1000 + thread);
+            for (int i = 0; i < operations; i++)
+            {
+                String u = hot.get(local.nextInt(hot.size())), w = hot.get(local.nextInt(hot.size()));
+                int op = local.nextInt(100);
+                try
+                {
+                    if (op < 60) network.addFriendship(u, w);
+                    else if (op < 70) { network.removeUser(u); removals.incrementAndGet(); }
+                    else if (op < 80) network.addUser(u);
+                    else network.shortestPath(u, w);
+                }
+                catch (NoSuchElementException e) { } // user removed by another thread
+            }
+        });
+
+        check(network.graph().repOk(), "invariant broken after concurrent removals");
+        for (String u : network.graph())
+            for (String w : network.getFriends(u))
+                check(network.getFriends(w).contains(u), "asymmetric friendship " + u + " - " + w);
+        System.out.println("churn: " + threads + " threads, " + threads * operations + " operations, " +
+                removals.get() + " removals: ok");
+    }
+
+    // Returns the number of operations per second of a mixed workload on network
+    private static double throughput(Network network, List<String> names, int threads,
+                                     long nanos, int writes) throws Exception
+    {
+        LongAdder operations = new LongAdder();
+        parallel(threads, thread ->
+        {
+            SplittableRandom local = new SplittableRandom(thread);
+            final long end = System.nanoTime() + nanos;
+            long done = 0;
+            while ((done & 15) != 0 || System.nanoTime() < end)
+            {
+                String u = names.get(local.nextInt(names.size())), w = names.get(local.nextInt(names.size()));
+                if (local.nextInt(100) < writes) network.addFriendship(u, w);
+                else network.shortestPath(u, w);
+                done++;
+            }
+            operations.add(done);
+        });
+        return operations.sum() / (nanos / 1e9);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+        int writes = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        List<String> names;
+        try
+        {
+            names = Files.readAllLines(Paths.get("nomi_italiani.txt"));
+        }
+        catch (IOException e)
+        {
+            System.err.println("cannot read nomi_italiani.txt: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        int threads = Math.max(2, maxThreads);
+        insertions(names, threads, 5 * names.size());
+        churn(names, threads, 20000);
+
+        long nanos = (long) (seconds * 1e9);
+        System.out.println();
+        System.out.printf("throughput, %d%% friendship writes, %.1fs per run (operations/s):%n", writes, seconds);
+        System.out.printf("%8s %20s %20s %20s%n", "threads", "SocialNetwork+lock", "Concurrent+lock", "Concurrent");
+        // 1, 2, 4, ... threads, ending with maxThreads even if it is not a power of two
+        for (int t = 1; t <= maxThreads; t = t < maxThreads && 2 * t > maxThreads ? maxThreads : 2 * t)
+        {
+            // every network starts from the same random graph of 5 friends per user
+            Network[] networks = { lockedSocialNetwork(names), lockedConcurrentNetwork(names), concurrentNetwork(names) };
+            double[] rates = new double[networks.length];
+            for (int i = 0; i < networks.length; i++)
+            {
+                SplittableRandom random = new SplittableRandom(7);
+                for (int k = 0; k < 5 * names.size(); k++)
+                    networks[i].addFriendship(names.get(random.nextInt(names.size())), names.get(random.nextInt(names.size())));
+                throughput(networks[i], names, t, nanos / 4, writes); // warm up
+                rates[i] = throughput(networks[i], names, t, nanos, writes);
+            }
+            System.out.printf("%8d %20.0f %20.0f %20.0f%n", t, rates[0], rates[1], rates[2]);
+        }
+    }
+}
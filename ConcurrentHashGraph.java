@@ -0,0 +1,331 @@
+import java.lang.IllegalArgumentException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+public class ConcurrentHashGraph<E> implements Graph<E>, Iterable<E>
+{
+    /* OVERVIEW:
+     * The class ConcurrentHashGraph<E> represents a Graph<E> that can be read and
+     * modified by any number of threads at once.
+     * Every label is mapped inside a ConcurrentHashMap to a Vertex holding two
+     * concurrent sets (ConcurrentHashMap.newKeySet()): the labels it has a
+     * connection towards (out) and the ones with a connection towards it (in).
+     * A connection <u, w> is always updated in both sets while holding the
+     * monitor of the Vertex of u, so that the two directions agree.
+     * Adding nodes and connections takes a read lock on the stripe of each label
+     * involved, thus never waits for other additions; removing a node takes the
+     * write lock of its stripe, so that no connection towards it can be added
+     * while its incoming connections are being dropped. Operations on labels of
+     * different stripes never wait for each other.
+     * Queries take no lock at all and are weakly consistent: they reflect every
+     * operation completed before they started and possibly some of the ones
+     * running concurrently, e.g. one direction of a symmetric pair of edges
+     * being added.
+     *
+     * AF:  { <k, vertices.get(k).out> : k ∈ vertices.keySet() }
+     *
+     * IR (whenever no operation is running):
+     *      - vertices ≠ null ∧ locks ≠ null
+     *      - w ∈ vertices.get(u).out ⇔ u ∈ vertices.get(w).in
+     *      - w ∈ vertices.get(u).out ⇒ w ∈ vertices.keySet() ∧ w ≠ u
+     */
+
+    private static final int STRIPES = 256;
+
+    // Connections of a single node, both directions
+    private static final class Vertex<E>
+    {
+        final Set<E> out = ConcurrentHashMap.newKeySet();
+        final Set<E> in = ConcurrentHashMap.newKeySet();
+    }
+
+    private final ConcurrentHashMap<E, Vertex<E>> vertices;
+    private final ReentrantReadWriteLock[] locks;
+
+    //EFFECTS: Creates an empty graph
+    public ConcurrentHashGraph()
+    {
+        this(16);
+    }
+
+    //REQUIRES: expectedSize ≥ 0
+    //EFFECTS:  Creates an empty graph that can hold expectedSize nodes without
+    //          being resized.
+    //          If expectedSize < 0     throws IllegalArgumentException (unchecked).
+    public ConcurrentHashGraph(int expectedSize) throws IllegalArgumentException
+    {
+        if (expectedSize < 0) throw new IllegalArgumentException();
+        vertices = new ConcurrentHashMap<>(expectedSize);
+        locks = new ReentrantReadWriteLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) locks[i] = new ReentrantReadWriteLock();
+    }
+
+    // Verifies the IR in O(|V| + |E'|); the result is only meaningful when no
+    // operation is running concurrently, e.g. at the end of a stress test
+    boolean repOk()
+    {
+        if (vertices == null || locks == null) return false;
+        for (E u : vertices.keySet())
+        {
+            Vertex<E> vertex = vertices.get(u);
+            for (E w : vertex.out)
+            {
+                Vertex<E> target = vertices.get(w);
+                if (w.equals(u) || target == null || !target.in.contains(u)) return false;
+            }
+            for (E w : vertex.in)
+            {
+                Vertex<E> source = vertices.get(w);
+                if (source == null || !source.out.contains(u)) return false;
+            }
+        }
+        return true;
+    }
+
+    private int stripe(E label)
+    {
+        int h = label.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    //REQUIRES: node ≠ null
+    //MODIFIES: V, E'
+    //EFFECTS:  Adds node.getLabel() to V, unless already there, along with a
+    //          connection towards every label of node.getAdjacency().
+    //          If node == null         throws IllegalArgumentException (unchecked).
+    public void addNode(Node<E> node) throws IllegalArgumentException
+    {
+        if (node == null) throw new IllegalArgumentException();
+        addNode(node.getLabel());
+        for (E w : node.getAdjacency()) addEdge(node.getLabel(), w);
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //MODIFIES: V
+    //EFFECTS:  Adds nodeLabel to V. If it is already there then does nothing.
+    //          If nodeLabel == null    throws IllegalArgumentException (unchecked).
+    public void addNode(E nodeLabel) throws IllegalArgumentException
+    {
+        if (nodeLabel == null) throw new IllegalArgumentException();
+        ReentrantReadWriteLock.ReadLock lock = locks[stripe(nodeLabel)].readLock();
+        lock.lock();
+        try
+        {
+            vertices.computeIfAbsent(nodeLabel, k -> new Vertex<>());
+        }
+        finally { lock.unlock(); }
+    }
+
+    //REQUIRES: edge ≠ null
+    //MODIFIES: V, E'
+    //EFFECTS:  Adds the connection <edge.getOutgoing(), edge.getIncoming()>,
+    //          first adding either node to V if it is not there.
+    //          If the connection already exists, or both ends are the same
+    //          label, then only the nodes are added.
+    //          If edge == null         throws IllegalArgumentException (unchecked).
+    public void addEdge(Edge<E> edge) throws IllegalArgumentException
+    {
+        if (edge == null) throw new IllegalArgumentException();
+        connect(edge.getOutgoing(), edge.getIncoming(), false);
+    }
+
+    //REQUIRES: u ≠ null ∧ w ≠ null
+    //MODIFIES: V, E'
+    //EFFECTS:  Same as addEdge(new Edge<E>(u, w)), without the Edge.
+    //          If u == null ∨ w == null
+    //                                  throws IllegalArgumentException (unchecked).
+    public void addEdge(E u, E w) throws IllegalArgumentException
+    {
+        if (u == null || w == null) throw new IllegalArgumentException();
+        connect(u, w, false);
+    }
+
+    //REQUIRES: u ≠ null ∧ w ≠ null
+    //MODIFIES: V, E'
+    //EFFECTS:  Atomically adds both connections <u, w> and <w, u>, first adding
+    //          either node to V if it is not there: a concurrent removal of u or w
+    //          either drops both connections or neither.
+    //          If u == null ∨ w == null
+    //                                  throws IllegalArgumentException (unchecked).
+    public void addUndirectedEdge(E u, E w) throws IllegalArgumentException
+    {
+        if (u == null || w == null) throw new IllegalArgumentException();
+        connect(u, w, true);
+    }
+
+    // Adds <u, w>, and <w, u> as well if symmetric, under the read locks of
+    // the stripes of u and w
+    private void connect(E u, E w, boolean symmetric)
+    {
+        int first = stripe(u), second = stripe(w);
+        if (first > second) { int t = first; first = second; second = t; }
+
+        // stripes are always locked in increasing order, so readers of two
+        // stripes cannot deadlock with a writer waiting on one of them
+        locks[first].readLock().lock();
+        if (second != first) locks[second].readLock().lock();
+        try
+        {
+            Vertex<E> source = vertices.computeIfAbsent(u, k -> new Vertex<>());
+            Vertex<E> target = vertices.computeIfAbsent(w, k -> new Vertex<>());
+            if (u.equals(w)) return; // nodes ignore connections to themselves
+            synchronized (source)
+            {
+                target.in.add(u);
+                source.out.add(w);
+            }
+            if (symmetric) synchronized (target)
+            {
+                source.in.add(w);
+                target.out.add(u);
+            }
+        }
+        finally
+        {
+            if (second != first) locks[second].readLock().unlock();
+            locks[first].readLock().unlock();
+        }
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //          nodeLabel ∈ V
+    //MODIFIES: V, E'
+    //EFFECTS:  Removes nodeLabel from V along with all of its incoming and outgoing
+    //          connections, in O(in-degree + out-degree).
+    //          If nodeLabel \not ∈ V   throws NoSuchElementException (unchecked).
+    //          If nodeLabel == null    throws IllegalArgumentException (unchecked).
+    public void removeNode(E nodeLabel) throws NoSuchElementException, IllegalArgumentException
+    {
+        if (nodeLabel == null) throw new IllegalArgumentException();
+        ReentrantReadWriteLock.WriteLock lock = locks[stripe(nodeLabel)].writeLock();
+        lock.lock();
+        try
+        {
+            Vertex<E> removed = vertices.remove(nodeLabel);
+            if (removed == null) throw new NoSuchElementException();
+            for (E u : removed.in)
+            {
+                Vertex<E> source = vertices.get(u);
+                if (source != null) synchronized (source) { source.out.remove(nodeLabel); }
+            }
+            synchronized (removed)
+            {
+                for (E w : removed.out)
+                {
+                    Vertex<E> target = vertices.get(w);
+                    if (target != null) target.in.remove(nodeLabel);
+                }
+            }
+        }
+        finally { lock.unlock(); }
+    }
+
+    //REQUIRES: node ≠ null
+    //          node.getLabel() ∈ V
+    //MODIFIES: V, E'
+    //EFFECTS:  Same as removeNode(node.getLabel()).
+    public void removeNode(Node<E> node) throws NoSuchElementException, IllegalArgumentException
+    {
+        if (node == null) throw new IllegalArgumentException();
+        removeNode(node.getLabel());
+    }
+
+    //REQUIRES: edge ≠ null
+    //          edge ∈ E'
+    //MODIFIES: E'
+    //EFFECTS:  Removes the connection <edge.getOutgoing(), edge.getIncoming()>.
+    //          If edge == null         throws IllegalArgumentException (unchecked).
+    //          If edge \not ∈ E'       throws NoSuchElementException (unchecked).
+    public void removeEdge(Edge<E> edge) throws NoSuchElementException, IllegalArgumentException
+    {
+        if (edge == null) throw new IllegalArgumentException();
+        Vertex<E> source = vertices.get(edge.getOutgoing());
+        if (source == null) throw new NoSuchElementException();
+        synchronized (source)
+        {
+            if (!source.out.remove(edge.getIncoming())) throw new NoSuchElementException();
+            Vertex<E> target = vertices.get(edge.getIncoming());
+            if (target != null) target.in.remove(edge.getOutgoing());
+        }
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //EFFECTS:  Returns true if nodeLabel ∈ V, false otherwise.
+    //          If nodeLabel == null    throws IllegalArgumentException (unchecked).
+    public boolean containsNode(E nodeLabel) throws IllegalArgumentException
+    {
+        if (nodeLabel == null) throw new IllegalArgumentException();
+        return vertices.containsKey(nodeLabel);
+    }
+
+    //EFFECTS: Returns |V|, which may be stale if nodes are being added or removed
+    public int size()
+    {
+        return vertices.size();
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //          nodeLabel ∈ V
+    //EFFECTS:  Returns a read-only, weakly consistent view of the labels
+    //          nodeLabel has a connection towards.
+    //          If nodeLabel == null    throws IllegalArgumentException
+    //          If nodeLabel \not ∈ V   throws NoSuchElementException
+    public Collection<E> getAdjacency(E nodeLabel) throws NoSuchElementException, IllegalArgumentException
+    {
+        return Collections.unmodifiableSet(vertex(nodeLabel).out);
+    }
+
+    //REQUIRES: nodeLabel ≠ null ∧ action ≠ null
+    //          nodeLabel ∈ V
+    //EFFECTS:  Invokes action on the labels nodeLabel has a connection towards,
+    //          with the consistency of getAdjacency(nodeLabel) and no view.
+    //          If nodeLabel == null ∨ action == null
+    //                                  throws IllegalArgumentException
+    //          If nodeLabel \not ∈ V   throws NoSuchElementException
+    public void forEachNeighbor(E nodeLabel, Consumer<? super E> action)
+        throws NoSuchElementException, IllegalArgumentException
+    {
+        if (action == null) throw new IllegalArgumentException();
+        vertex(nodeLabel).out.forEach(action);
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //          nodeLabel ∈ V
+    //EFFECTS:  Returns a read-only, weakly consistent view of the labels with a
+    //          connection towards nodeLabel.
+    //          If nodeLabel == null    throws IllegalArgumentException
+    //          If nodeLabel \not ∈ V   throws NoSuchElementException
+    public Collection<E> getIncoming(E nodeLabel) throws NoSuchElementException, IllegalArgumentException
+    {
+        return Collections.unmodifiableSet(vertex(nodeLabel).in);
+    }
+
+    private Vertex<E> vertex(E nodeLabel)
+    {
+        if (nodeLabel == null) throw new IllegalArgumentException();
+        Vertex<E> vertex = vertices.get(nodeLabel);
+        if (vertex == null) throw new NoSuchElementException();
+        return vertex;
+    }
+
+    //EFFECTS: Returns a weakly consistent iterator over the labels
+    public Iterator<E> iterator()
+    {
+        return Collections.unmodifiableSet(vertices.keySet()).iterator();
+    }
+
+    //EFFECTS: Returns a string representation of the current class instance
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        vertices.forEach((k, vertex) -> sb.append(k + ": " + vertex.out + "\n"));
+        return sb.toString();
+    }
+}
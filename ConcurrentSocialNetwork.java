@@ -0,0 +1,134 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+public class ConcurrentSocialNetwork
+{
+    //OVERVIEW: Social network implementation using ConcurrentHashGraph<String>,
+    //          safe to be used by any number of threads at once.
+    //          Users are identified via their names.
+    //          Unlike SocialNetwork, there is no shared snapshot nor scratch
+    //          buffer: every query allocates its own state, so queries never
+    //          wait for each other nor for writers. Queries are weakly
+    //          consistent (see ConcurrentHashGraph): a path query running while
+    //          friendships change may or may not see those changes.
+
+    private final ConcurrentHashGraph<String> friendsGraph;
+
+    public ConcurrentSocialNetwork()
+    {
+        friendsGraph = new ConcurrentHashGraph<>();
+    }
+
+    // Creates a network that can hold expectedUsers users without being resized
+    public ConcurrentSocialNetwork(int expectedUsers)
+    {
+        friendsGraph = new ConcurrentHashGraph<>(expectedUsers);
+    }
+
+    public void addUser(String user)
+    {
+        friendsGraph.addNode(user);
+    }
+
+    // Removes a user along with all of their friendships
+    public void removeUser(String user)
+    {
+        friendsGraph.removeNode(user);
+    }
+
+    public void addFriendship(String user1, String user2)
+    {
+        friendsGraph.addUndirectedEdge(user1, user2);
+    }
+
+    public boolean containsUser(String user)
+    {
+        return friendsGraph.containsNode(user);
+    }
+
+    // Returns the number of users, possibly stale if users are being added or removed
+    public int size()
+    {
+        return friendsGraph.size();
+    }
+
+    public Collection<String> getFriends(String user)
+    {
+        return new ArrayList<>(friendsGraph.getAdjacency(user));
+    }
+
+    // Invokes action on every friend of user, weakly consistent and without copies
+    public void forEachFriend(String user, Consumer<? super String> action)
+    {
+        friendsGraph.forEachNeighbor(user, action);
+    }
+
+    // Returns the underlying graph, e.g. to check its invariants once quiescent
+    ConcurrentHashGraph<String> graph()
+    {
+        return friendsGraph;
+    }
+
+    //Bidirectional BFS: expands the smaller frontier one level at a time until
+    //the two searches meet. Returns -1 if destination is unknown or unreachable.
+    public int shortestPath(String source, String destination)
+    {
+        if (!friendsGraph.containsNode(source)) throw new NoSuchElementException();
+        if (!friendsGraph.containsNode(destination)) return -1;
+        if (source.equals(destination)) return 0;
+
+        HashMap<String, Integer> forward = new HashMap<>(), backward = new HashMap<>();
+        ArrayList<String> forwardFrontier = new ArrayList<>(), backwardFrontier = new ArrayList<>();
+        forward.put(source, 0);
+        backward.put(destination, 0);
+        forwardFrontier.add(source);
+        backwardFrontier.add(destination);
+        int forwardDepth = 0, backwardDepth = 0;
+
+        while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty())
+        {
+            int best;
+            if (forwardFrontier.size() <= backwardFrontier.size())
+                best = expand(forwardFrontier, forward, backward, ++forwardDepth);
+            else
+                best = expand(backwardFrontier, backward, forward, ++backwardDepth);
+            if (best != -1) return best;
+        }
+        return -1;
+    }
+
+    // Replaces frontier with its unvisited neighbors, labelling them with depth
+    // inside visited; returns the length of the shortest path through a node
+    // already reached by the other search, -1 if there is none.
+    private int expand(ArrayList<String> frontier, HashMap<String, Integer> visited,
+                       HashMap<String, Integer> other, int depth)
+    {
+        ArrayList<String> next = new ArrayList<>();
+        int best = -1;
+        for (String v : frontier)
+        {
+            Collection<String> friends;
+            try { friends = friendsGraph.getAdjacency(v); }
+            catch (NoSuchElementException e) { continue; } // removed meanwhile
+            for (String w : friends)
+            {
+                if (visited.putIfAbsent(w, depth) != null) continue;
+                next.add(w);
+                Integer meet = other.get(w);
+                if (meet != null && (best == -1 || depth + meet < best)) best = depth + meet;
+            }
+        }
+        frontier.clear();
+        frontier.addAll(next);
+        return best;
+    }
+
+    // Prints the network in a nice format
+    public void prettyPrint()
+    {
+        System.out.println("Network:\n" + friendsGraph.toString());
+    }
+}
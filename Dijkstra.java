@@ -0,0 +1,267 @@
+import java.lang.IllegalArgumentException;
+import java.util.Arrays;
+
+public class Dijkstra
+{
+    /* OVERVIEW:
+     * The class Dijkstra represents a reusable engine computing weighted
+     * shortest paths over the dense ids of an IndexedGraph, whose weights
+     * (see IndexedGraph.weight) are finite and ≥ 0.
+     * Tentative distances live in a double[] indexed by id and the frontier in
+     * an IndexedHeap, so relaxing a connection either inserts its target or
+     * decreases its key in place: no entry is ever duplicated and no object is
+     * allocated after warm-up. As in BreadthFirstSearch, a node v has been
+     * reached by the current search iff stamp[v] == epoch, so starting a new
+     * search only increments epoch and clears what is left inside the heap.
+     * Nodes are settled by non decreasing distance; since weights are ≥ 0 a
+     * settled distance never changes, so a search towards a target stops as
+     * soon as the target is settled.
+     * Bidirectional searches grow a second search backwards from the target,
+     * with a second set of buffers allocated on first use, settling one node
+     * of the side with the smaller heap at a time; they stop once the smallest
+     * keys of the two heaps add up to at least the shortest path μ found so
+     * far through a connection between the two sides. They require a symmetric
+     * graph with symmetric weights, e.g. the friendships of a SocialNetwork.
+     * Instances are not thread safe: every thread needs its own engine.
+     *
+     * IR:  - graph ≠ null
+     *      - distance.length == stamp.length == heap.capacity() ≥ graph.size()
+     *      - epoch > 0
+     *      - stamp[v] == epoch ⇒ distance[v] ≥ 0
+     *      - heap.contains(v) ⇒ stamp[v] == epoch ∧ heap.key(v) == distance[v]
+     *      - backStamp ≠ null ⇒ backDistance.length == backStamp.length ==
+     *                           backHeap.capacity() == stamp.length
+     */
+
+    private IndexedGraph<?> graph;
+    private double[] distance;  // meaningful only where stamp[v] == epoch
+    private int[] stamp;
+    private IndexedHeap heap;
+    private int epoch;
+    private int settled;        // number of nodes settled by the last search
+
+    // backward side of bidirectional searches, null until first needed
+    private double[] backDistance;
+    private int[] backStamp;
+    private IndexedHeap backHeap;
+
+    //REQUIRES: graph ≠ null
+    //EFFECTS:  Creates an engine for graph with buffers sized graph.size().
+    //          If graph == null        throws IllegalArgumentException (unchecked).
+    public Dijkstra(IndexedGraph<?> graph) throws IllegalArgumentException
+    {
+        distance = new double[0];
+        stamp = new int[0];
+        heap = new IndexedHeap(0);
+        reset(graph);
+    }
+
+    //REQUIRES: graph ≠ null
+    //MODIFIES: this
+    //EFFECTS:  Binds the engine to graph, growing the scratch buffers only if
+    //          they are smaller than graph.size().
+    //          If graph == null        throws IllegalArgumentException (unchecked).
+    public void reset(IndexedGraph<?> graph) throws IllegalArgumentException
+    {
+        if (graph == null) throw new IllegalArgumentException();
+        this.graph = graph;
+        heap.clear();
+        if (stamp.length < graph.size())
+        {
+            distance = new double[graph.size()];
+            stamp = new int[graph.size()];
+            heap = new IndexedHeap(graph.size());
+            backDistance = null;
+            backStamp = null;
+            backHeap = null;
+        }
+        else
+        {
+            Arrays.fill(stamp, 0);
+            if (backStamp != null)
+            {
+                Arrays.fill(backStamp, 0);
+                backHeap.clear();
+            }
+        }
+        epoch = 1;
+        settled = 0;
+    }
+
+    //EFFECTS: Returns the graph the engine is bound to
+    public IndexedGraph<?> graph()
+    {
+        return graph;
+    }
+
+    //EFFECTS: Returns the number of nodes settled by the last search
+    public int lastSettled()
+    {
+        return settled;
+    }
+
+    // Starts a new search, clearing stamps only when epoch overflows
+    private void nextEpoch()
+    {
+        if (++epoch == Integer.MAX_VALUE)
+        {
+            Arrays.fill(stamp, 0);
+            if (backStamp != null) Arrays.fill(backStamp, 0);
+            epoch = 1;
+        }
+        heap.clear();
+        if (backHeap != null) backHeap.clear();
+    }
+
+    // Settles the nodes reachable from source by non decreasing distance,
+    // stopping as soon as target (if ≥ 0) is settled. Returns the distance of
+    // the last node settled.
+    private double search(int source, int target)
+    {
+        nextEpoch();
+        stamp[source] = epoch;
+        distance[source] = 0;
+        heap.insert(source, 0);
+        settled = 0;
+        double last = 0;
+
+        while (!heap.isEmpty())
+        {
+            int user = heap.poll();
+            settled++;
+            last = distance[user];
+            if (user == target) return last;
+            relax(user, last);
+        }
+        return last;
+    }
+
+    // Relaxes every connection of user, settled at the given distance
+    private void relax(int user, double current)
+    {
+        int degree = graph.degree(user);
+        for (int i = 0; i < degree; i++)
+        {
+            int adjacent = graph.neighbor(user, i);
+            double length = current + graph.weight(user, i);
+            if (stamp[adjacent] != epoch)
+            {
+                stamp[adjacent] = epoch;
+                distance[adjacent] = length;
+                heap.insert(adjacent, length);
+            }
+            else if (length < distance[adjacent])
+            {
+                // adjacent is still queued: settled ones are never closer than user
+                distance[adjacent] = length;
+                heap.decreaseKey(adjacent, length);
+            }
+        }
+    }
+
+    //REQUIRES: 0 ≤ source, target < graph().size()
+    //EFFECTS:  Returns the weight of a shortest path from source to target, or
+    //          +∞ if target is unreachable. The search stops as soon as target
+    //          is settled.
+    public double distance(int source, int target)
+    {
+        double d = search(source, target);
+        return stamp[target] == epoch ? d : Double.POSITIVE_INFINITY;
+    }
+
+    //REQUIRES: 0 ≤ source < graph().size()
+    //EFFECTS:  Returns the weighted eccentricity of source, i.e. the maximum weight
+    //          of a shortest path from source to any node reachable from it.
+    public double eccentricity(int source)
+    {
+        return search(source, -1);
+    }
+
+    //REQUIRES: 0 ≤ source < graph().size()
+    //          row ≠ null ∧ row.length ≥ graph().size()
+    //MODIFIES: row
+    //EFFECTS:  Sets row[v] to the weight of a shortest path from source to v, or
+    //          +∞ if v is unreachable, ∀ 0 ≤ v < graph().size(). Returns the
+    //          weighted eccentricity of source.
+    public double distances(int source, double[] row)
+    {
+        double eccentricity = search(source, -1);
+        for (int v = 0; v < graph.size(); v++)
+            row[v] = stamp[v] == epoch ? distance[v] : Double.POSITIVE_INFINITY;
+        return eccentricity;
+    }
+
+    //REQUIRES: 0 ≤ v < graph().size()
+    //EFFECTS:  Returns the distance from the source of the last search started by
+    //          distance, eccentricity or distances to v, +∞ if it did not reach v.
+    //          The distance is final only if v was settled, e.g. always after
+    //          eccentricity and distances.
+    public double distanceTo(int v)
+    {
+        return stamp[v] == epoch ? distance[v] : Double.POSITIVE_INFINITY;
+    }
+
+    //REQUIRES: 0 ≤ source, target < graph().size()
+    //          graph() is symmetric, with symmetric weights
+    //EFFECTS:  Returns the weight of a shortest path from source to target, or +∞
+    //          if target is unreachable, growing one search from source and one
+    //          from target until the two meet and no shorter path can be found.
+    public double bidirectionalDistance(int source, int target)
+    {
+        if (backStamp == null)
+        {
+            backDistance = new double[stamp.length];
+            backStamp = new int[stamp.length];
+            backHeap = new IndexedHeap(stamp.length);
+        }
+        nextEpoch();
+        stamp[source] = epoch;
+        distance[source] = 0;
+        heap.insert(source, 0);
+        backStamp[target] = epoch;
+        backDistance[target] = 0;
+        backHeap.insert(target, 0);
+        settled = 0;
+
+        double best = source == target ? 0 : Double.POSITIVE_INFINITY;
+        while (!heap.isEmpty() && !backHeap.isEmpty() && heap.peekKey() + backHeap.peekKey() < best)
+        {
+            if (heap.size() <= backHeap.size())
+                best = step(stamp, distance, heap, backStamp, backDistance, best);
+            else
+                best = step(backStamp, backDistance, backHeap, stamp, distance, best);
+        }
+        return best;
+    }
+
+    // Settles the closest node of one side of a bidirectional search, relaxing
+    // its connections. Returns the shortest path found so far, i.e. best or a
+    // shorter one through a connection towards a node reached by the other side.
+    private double step(int[] stamp, double[] distance, IndexedHeap heap,
+                        int[] otherStamp, double[] otherDistance, double best)
+    {
+        int user = heap.poll();
+        settled++;
+        double current = distance[user];
+        int degree = graph.degree(user);
+        for (int i = 0; i < degree; i++)
+        {
+            int adjacent = graph.neighbor(user, i);
+            double length = current + graph.weight(user, i);
+            if (stamp[adjacent] != epoch)
+            {
+                stamp[adjacent] = epoch;
+                distance[adjacent] = length;
+                heap.insert(adjacent, length);
+            }
+            else if (length < distance[adjacent])
+            {
+                distance[adjacent] = length;
+                heap.decreaseKey(adjacent, length);
+            }
+            if (otherStamp[adjacent] == epoch && length + otherDistance[adjacent] < best)
+                best = length + otherDistance[adjacent];
+        }
+        return best;
+    }
+}
@@ -0,0 +1,268 @@
+import java.lang.IllegalArgumentException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class DirectionOptimizingBFS
+{
+    /* OVERVIEW:
+     * The class DirectionOptimizingBFS represents a reusable BFS engine over the
+     * dense ids of a symmetric IndexedGraph, which switches between top-down
+     * and bottom-up levels as proposed by Beamer, Asanović and Patterson.
+     * A top-down level scans the adjacency of every frontier node, as
+     * BreadthFirstSearch does; most of the connections it checks lead to nodes
+     * already visited once the frontier covers a large part of the graph. A
+     * bottom-up level instead scans every unvisited node and stops at its first
+     * neighbor in the frontier, held in a bitset, so that it checks far fewer
+     * connections when the frontier is large. The search goes bottom-up when
+     * the connections leaving the frontier (mf) exceed 1/ALPHA of those leaving
+     * unvisited nodes (mu), and back top-down when the frontier shrinks below
+     * n/BETA nodes.
+     * If the engine is given a ForkJoinPool, bottom-up levels are split across
+     * it by ranges of 64 nodes, so that every task owns whole words of the next
+     * frontier and its own entries of level: no two tasks ever write the same
+     * location. Top-down levels only run on small frontiers and stay sequential.
+     * Instances are not thread safe: every thread needs its own engine.
+     *
+     * IR:  - graph ≠ null ∧ graph is symmetric
+     *      - level.length == queue.length ≥ graph.size()
+     *      - frontier.length == next.length == ⌈level.length / 64⌉
+     */
+
+    private static final int ALPHA = 15;
+    private static final int BETA = 18;
+    private static final int CHUNK = 64 * 64;   // nodes per parallel task, at least
+
+    private IndexedGraph<?> graph;
+    private final ForkJoinPool pool;    // null: sequential
+    private long arcs;                  // |E'| of graph
+    private int[] level;                // distance from the source, -1 if unvisited
+    private int[] queue;                // frontier of top-down levels
+    private long[] frontier, next;      // frontiers of bottom-up levels
+    private long degrees;               // degree sum of the frontier found by topDownStep
+    private int visited;
+    private int bottomUp;               // bottom-up levels of the last search
+
+    //REQUIRES: graph ≠ null
+    //          graph is symmetric
+    //EFFECTS:  Creates a sequential engine for graph.
+    //          If graph == null        throws IllegalArgumentException (unchecked).
+    public DirectionOptimizingBFS(IndexedGraph<?> graph) throws IllegalArgumentException
+    {
+        this(graph, null);
+    }
+
+    //REQUIRES: graph ≠ null
+    //          graph is symmetric
+    //EFFECTS:  Creates an engine for graph running bottom-up levels on pool, or
+    //          sequentially if pool == null.
+    //          If graph == null        throws IllegalArgumentException (unchecked).
+    public DirectionOptimizingBFS(IndexedGraph<?> graph, ForkJoinPool pool) throws IllegalArgumentException
+    {
+        this.pool = pool;
+        level = queue = new int[0];
+        frontier = next = new long[0];
+        reset(graph);
+    }
+
+    //REQUIRES: graph ≠ null
+    //          graph is symmetric
+    //MODIFIES: this
+    //EFFECTS:  Binds the engine to graph, growing the scratch buffers only if
+    //          they are smaller than graph.size().
+    //          If graph == null        throws IllegalArgumentException (unchecked).
+    public void reset(IndexedGraph<?> graph) throws IllegalArgumentException
+    {
+        if (graph == null) throw new IllegalArgumentException();
+        this.graph = graph;
+        final int n = graph.size();
+        if (level.length < n)
+        {
+            level = new int[n];
+            queue = new int[n];
+            frontier = new long[(n + 63) >>> 6];
+            next = new long[frontier.length];
+        }
+        arcs = 0;
+        for (int v = 0; v < n; v++) arcs += graph.degree(v);
+        visited = bottomUp = 0;
+    }
+
+    //EFFECTS: Returns the graph the engine is bound to
+    public IndexedGraph<?> graph()
+    {
+        return graph;
+    }
+
+    //EFFECTS: Returns the number of nodes reached by the last search
+    public int lastVisited()
+    {
+        return visited;
+    }
+
+    //EFFECTS: Returns the number of levels the last search expanded bottom-up
+    public int bottomUpLevels()
+    {
+        return bottomUp;
+    }
+
+    //REQUIRES: 0 ≤ source < graph().size()
+    //EFFECTS:  Returns the eccentricity of source, i.e. the maximum number of hops
+    //          from source to any node reachable from it.
+    public int eccentricity(int source)
+    {
+        return search(source);
+    }
+
+    //REQUIRES: 0 ≤ source < graph().size()
+    //          row ≠ null ∧ row.length ≥ graph().size()
+    //MODIFIES: row
+    //EFFECTS:  Sets row[v] to the number of hops from source to v, or -1 if v is
+    //          unreachable, ∀ 0 ≤ v < graph().size(). Returns the eccentricity of source.
+    public int distances(int source, int[] row)
+    {
+        int eccentricity = search(source);
+        System.arraycopy(level, 0, row, 0, graph.size());
+        return eccentricity;
+    }
+
+    //REQUIRES: 0 ≤ v < graph().size()
+    //EFFECTS:  Returns the number of hops from the source of the last search to v,
+    //          or -1 if the last search did not reach v.
+    public int distanceTo(int v)
+    {
+        return level[v];
+    }
+
+    // Visits the nodes reachable from source, returning the eccentricity of source
+    private int search(int source)
+    {
+        final int n = graph.size();
+        Arrays.fill(level, 0, n, -1);
+        level[source] = 0;
+        queue[0] = source;
+        int size = 1, depth = 0;          // frontier size and distance
+        boolean topDown = true;
+        long mf = graph.degree(source);   // connections leaving the frontier
+        long mu = arcs - mf;              // connections leaving unvisited nodes
+        visited = 1;
+        bottomUp = 0;
+
+        while (size > 0)
+        {
+            if (topDown && mf > mu / ALPHA)
+            {
+                topDown = false;
+                Arrays.fill(frontier, 0, (n + 63) >>> 6, 0);
+                for (int i = 0; i < size; i++) frontier[queue[i] >>> 6] |= 1L << queue[i];
+            }
+            else if (!topDown && size < n / BETA)
+            {
+                topDown = true;
+                size = 0;
+                for (int v = 0; v < n; v++) if (level[v] == depth) queue[size++] = v;
+            }
+
+            if (topDown)
+            {
+                size = topDownStep(size, depth);
+                mf = degrees;
+            }
+            else
+            {
+                Arrays.fill(next, 0, (n + 63) >>> 6, 0);
+                BottomUp step = new BottomUp(0, n, depth);
+                if (pool != null && n > CHUNK) pool.invoke(step);
+                else step.scan();
+                size = step.found;
+                mf = step.degrees;
+                long[] swap = frontier;
+                frontier = next;
+                next = swap;
+                bottomUp++;
+            }
+            mu -= mf;
+            visited += size;
+            if (size > 0) depth++;
+        }
+        return depth;
+    }
+
+    // Expands the size nodes of queue at distance depth into queue itself.
+    // Returns the size of the next frontier, setting degrees to the sum of its degrees.
+    private int topDownStep(int size, int depth)
+    {
+        int tail = size;
+        long degrees = 0;
+        for (int head = 0; head < size; head++)
+        {
+            int v = queue[head], degree = graph.degree(v);
+            for (int i = 0; i < degree; i++)
+            {
+                int w = graph.neighbor(v, i);
+                if (level[w] != -1) continue;
+                level[w] = depth + 1;
+                queue[tail++] = w;
+                degrees += graph.degree(w);
+            }
+        }
+        System.arraycopy(queue, size, queue, 0, tail - size);
+        this.degrees = degrees;
+        return tail - size;
+    }
+
+    // A bottom-up level over the nodes in [from, to), from a multiple of 64:
+    // visits the unvisited ones with a neighbor in frontier, adding them to next,
+    // and counts them in found and their degrees in degrees
+    private class BottomUp extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final int from, to, depth;
+        int found;
+        long degrees;
+
+        BottomUp(int from, int to, int depth)
+        {
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= CHUNK)
+            {
+                scan();
+                return;
+            }
+            int middle = from + (((to - from) >>> 1) & ~63);
+            BottomUp left = new BottomUp(from, middle, depth), right = new BottomUp(middle, to, depth);
+            left.fork();
+            right.compute();
+            left.join();
+            found = left.found + right.found;
+            degrees = left.degrees + right.degrees;
+        }
+
+        // Visits [from, to) sequentially
+        void scan()
+        {
+            for (int v = from; v < to; v++)
+            {
+                if (level[v] != -1) continue;
+                int degree = graph.degree(v);
+                for (int i = 0; i < degree; i++)
+                {
+                    int w = graph.neighbor(v, i);
+                    if ((frontier[w >>> 6] & (1L << w)) == 0) continue;
+                    level[v] = depth + 1;
+                    next[v >>> 6] |= 1L << v;
+                    found++;
+                    degrees += degree;
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import java.lang.IllegalArgumentException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+public class DistanceCache
+{
+    /* OVERVIEW:
+     * The class DistanceCache represents a memory bounded cache of BFS distance
+     * rows: row[v] is the number of hops from the row's source to the node with
+     * id v, -1 if unreachable. Rows are kept in least recently used order and the
+     * oldest ones are evicted whenever the total size of the rows would exceed
+     * capacity bytes; the array of an evicted row is recycled for the next one.
+     * If the cache is symmetric, the distance between source and target is also
+     * looked up in the row of target, which is sound for undirected graphs.
+     * Rows may be shorter than the graph: ids beyond the end of a row are
+     * unreachable from its source, e.g. nodes added after it was computed.
+     * Rows can also be kept up to date in place (see forEachRow and extend)
+     * instead of being dropped when the graph changes.
+     * Hits, misses, evictions and invalidations are counted from creation.
+     *
+     * IR:  - rows ≠ null
+     *      - bytes == Σ 4 * row.length ∀ row ∈ rows.values()
+     *      - bytes ≤ capacity
+     *      - hits, misses, evictions, invalidations ≥ 0
+     */
+
+    // Returned by distance(int, int) when no row can answer the query
+    public static final int MISS = -2;
+
+    private final LinkedHashMap<Integer, int[]> rows; // access ordered: eldest is LRU
+    private final boolean symmetric;
+    private long capacity;
+    private long bytes;
+    private long hits, misses, evictions, invalidations;
+
+    //REQUIRES: capacity ≥ 0
+    //EFFECTS:  Creates an empty cache holding at most capacity bytes of rows.
+    //          If capacity < 0         throws IllegalArgumentException (unchecked).
+    public DistanceCache(long capacity, boolean symmetric) throws IllegalArgumentException
+    {
+        if (capacity < 0) throw new IllegalArgumentException();
+        this.rows = new LinkedHashMap<>(16, 0.75f, true);
+        this.symmetric = symmetric;
+        this.capacity = capacity;
+    }
+
+    //EFFECTS: Returns the size in bytes of a row of the given length
+    private static long footprint(int length)
+    {
+        return 4L * length;
+    }
+
+    //EFFECTS:  Returns the distance from source to target stored in a cached row
+    //          (or in the row of target if the cache is symmetric), MISS otherwise.
+    public int distance(int source, int target)
+    {
+        int[] row = rows.get(source);
+        if (row == null && symmetric)
+        {
+            row = rows.get(target);
+            target = source;
+        }
+        if (row == null)
+        {
+            misses++;
+            return MISS;
+        }
+        hits++;
+        return target < row.length ? row[target] : -1;
+    }
+
+    //REQUIRES: length ≥ 0
+    //MODIFIES: this
+    //EFFECTS:  Returns an array of the given length that the caller shall fill with
+    //          the distances from source, registered as the most recently used row,
+    //          evicting the least recently used rows as needed.
+    //          Returns null if such a row cannot fit within capacity.
+    public int[] newRow(int source, int length)
+    {
+        final long size = footprint(length);
+        if (size > capacity) return null;
+
+        int[] row = rows.remove(source);
+        if (row != null) bytes -= footprint(row.length);
+
+        Iterator<Map.Entry<Integer, int[]>> eldest = rows.entrySet().iterator();
+        while (bytes + size > capacity)
+        {
+            int[] evicted = eldest.next().getValue();
+            eldest.remove();
+            bytes -= footprint(evicted.length);
+            evictions++;
+            if (row == null && evicted.length == length) row = evicted;
+        }
+
+        if (row == null || row.length != length) row = new int[length];
+        rows.put(source, row);
+        bytes += size;
+        return row;
+    }
+
+    //REQUIRES: length ≥ 0
+    //MODIFIES: this
+    //EFFECTS:  Makes every row at least length long, padding it with -1 (unreachable);
+    //          rows grow at least twice as large, so that a graph growing one node
+    //          at a time costs amortized O(1) per node and row. Evicts the least
+    //          recently used rows if the longer ones exceed capacity.
+    public void extend(int length)
+    {
+        for (Map.Entry<Integer, int[]> entry : rows.entrySet())
+        {
+            int[] row = entry.getValue();
+            if (row.length >= length) continue;
+            int[] longer = Arrays.copyOf(row, Math.max(length, 2 * row.length));
+            Arrays.fill(longer, row.length, longer.length, -1);
+            entry.setValue(longer);
+            bytes += footprint(longer.length) - footprint(row.length);
+        }
+        setCapacity(capacity);
+    }
+
+    //EFFECTS:  Invokes action(row, source) for every cached row, which action may
+    //          update in place (e.g. to repair it after the graph changed), without
+    //          affecting the least recently used order.
+    public void forEachRow(ObjIntConsumer<int[]> action)
+    {
+        for (Map.Entry<Integer, int[]> entry : rows.entrySet()) action.accept(entry.getValue(), entry.getKey());
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Drops every row, e.g. because the graph they were computed on changed.
+    public void clear()
+    {
+        if (rows.isEmpty()) return;
+        rows.clear();
+        bytes = 0;
+        invalidations++;
+    }
+
+    //REQUIRES: capacity ≥ 0
+    //MODIFIES: this
+    //EFFECTS:  Sets the memory bound, evicting least recently used rows if needed.
+    //          If capacity < 0         throws IllegalArgumentException (unchecked).
+    public void setCapacity(long capacity) throws IllegalArgumentException
+    {
+        if (capacity < 0) throw new IllegalArgumentException();
+        this.capacity = capacity;
+        Iterator<int[]> eldest = rows.values().iterator();
+        while (bytes > capacity)
+        {
+            bytes -= footprint(eldest.next().length);
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public long capacity() { return capacity; }
+    public long bytes() { return bytes; }
+    public int size() { return rows.size(); }
+    public long hits() { return hits; }
+    public long misses() { return misses; }
+    public long evictions() { return evictions; }
+    public long invalidations() { return invalidations; }
+
+    //EFFECTS: Returns a string representation of the current class instance
+    @Override
+    public String toString()
+    {
+        return "rows: " + size() + ", bytes: " + bytes + "/" + capacity + ", hits: " + hits +
+               ", misses: " + misses + ", evictions: " + evictions + ", invalidations: " + invalidations;
+    }
+}
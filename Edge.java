@@ -2,16 +2,33 @@ import java.lang.IllegalArgumentException;
 
 public class Edge<E>
 {
+    // Weight of edges built without one, i.e. of unweighted connections
+    public static final double DEFAULT_WEIGHT = 1;
+
     //incoming and outgoing nodes info
     private E inLabel, outLabel;
+    private final double weight;    // finite and ≥ 0, e.g. the cost of following the edge
 
     public Edge(E outLabel, E inLabel) throws IllegalArgumentException
     {
-        if (outLabel == null || inLabel == null) throw new IllegalArgumentException();
+        this(outLabel, inLabel, DEFAULT_WEIGHT);
+    }
+
+    public Edge(E outLabel, E inLabel, double weight) throws IllegalArgumentException
+    {
+        if (outLabel == null || inLabel == null || !isWeight(weight)) throw new IllegalArgumentException();
         this.inLabel = inLabel;
         this.outLabel = outLabel;
+        this.weight = weight;
+    }
+
+    // Returns true if weight can label an edge: shortest paths need it finite and ≥ 0
+    public static boolean isWeight(double weight)
+    {
+        return weight >= 0 && weight < Double.POSITIVE_INFINITY;
     }
 
     public E getIncoming() { return inLabel; }
     public E getOutgoing() { return outLabel; }
+    public double getWeight() { return weight; }
 }
@@ -0,0 +1,259 @@
+import java.lang.IllegalArgumentException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class FriendRecommender
+{
+    /* OVERVIEW:
+     * The class FriendRecommender represents a reusable "people you may know"
+     * engine over the dense ids of a symmetric IndexedGraph: candidates for a
+     * user u are the nodes at exactly 2 hops from u, scored by the friends they
+     * share with u. A query walks the adjacency of every friend f of u once,
+     * accumulating scores in dense arrays indexed by id; only the entries
+     * touched are reset afterwards, so a query costs O(Σ degree(f)) whatever
+     * the size of the graph. The k best candidates are kept in a bounded
+     * min-heap, so ranking costs O(c log k) for c candidates.
+     * Scores:
+     *  - COMMON_NEIGHBORS: |N(u) ∩ N(c)|;
+     *  - ADAMIC_ADAR:      Σ 1 / ln degree(f) for f ∈ N(u) ∩ N(c), which
+     *                      weighs rare common friends more than hubs;
+     *  - JACCARD:          |N(u) ∩ N(c)| / |N(u) ∪ N(c)|.
+     * Ties are broken by id, so results are deterministic.
+     * Instances are not thread safe: every thread needs its own engine, and
+     * recommend(IndexedGraph, ...) runs batches across a ForkJoinPool.
+     *
+     * IR:  - graph ≠ null ∧ graph is symmetric
+     *      - common.length == weight.length == mark.length == graph.size()
+     *      - common[v] == 0 ∧ weight[v] == 0 ∧ mark[v] ≠ epoch between queries
+     */
+
+    public enum Score { COMMON_NEIGHBORS, ADAMIC_ADAR, JACCARD }
+
+    private final IndexedGraph<?> graph;
+    private final int[] common;         // common friends of each candidate
+    private final double[] weight;      // Adamic-Adar sums of each candidate
+    private final int[] mark;           // mark[v] == epoch iff v is u or a friend of u
+    private int epoch;
+    private int[] touched;              // candidates of the current query
+    private int[] heap;                 // min-heap of the best candidates so far
+    private double[] heapScores;
+    private int candidates;             // candidates of the last query
+
+    //REQUIRES: graph ≠ null
+    //          graph is symmetric
+    //EFFECTS:  Creates an engine for graph.
+    //          If graph == null        throws IllegalArgumentException (unchecked).
+    public FriendRecommender(IndexedGraph<?> graph) throws IllegalArgumentException
+    {
+        if (graph == null) throw new IllegalArgumentException();
+        this.graph = graph;
+        common = new int[graph.size()];
+        weight = new double[graph.size()];
+        mark = new int[graph.size()];
+        touched = new int[16];
+        heap = new int[16];
+        heapScores = new double[16];
+    }
+
+    //EFFECTS: Returns the number of candidates scored by the last query
+    public int lastCandidates()
+    {
+        return candidates;
+    }
+
+    //REQUIRES: 0 ≤ user < graph.size() ∧ k ≥ 0 ∧ score ≠ null
+    //          scores == null ∨ scores.length ≥ k
+    //EFFECTS:  Returns the ids of the (at most) k best candidates for user, by
+    //          decreasing score, setting scores[i] to the score of the i-th one if
+    //          scores ≠ null.
+    //          If k < 0 ∨ score == null ∨ scores is too short
+    //                                  throws IllegalArgumentException (unchecked).
+    //          If user is out of bounds
+    //                                  throws IndexOutOfBoundsException (unchecked).
+    public int[] recommend(int user, int k, Score score, double[] scores) throws IllegalArgumentException
+    {
+        if (k < 0 || score == null || (scores != null && scores.length < k)) throw new IllegalArgumentException();
+        if (user < 0 || user >= graph.size()) throw new IndexOutOfBoundsException();
+        if (++epoch == Integer.MAX_VALUE)
+        {
+            Arrays.fill(mark, 0);
+            epoch = 1;
+        }
+
+        final int degree = graph.degree(user);
+        mark[user] = epoch;
+        for (int i = 0; i < degree; i++) mark[graph.neighbor(user, i)] = epoch;
+
+        // accumulates common friends (and their weights) of every candidate
+        int size = 0;
+        for (int i = 0; i < degree; i++)
+        {
+            int friend = graph.neighbor(user, i), friendDegree = graph.degree(friend);
+            double w = score == Score.ADAMIC_ADAR ? 1 / Math.log(friendDegree) : 0;
+            for (int j = 0; j < friendDegree; j++)
+            {
+                int candidate = graph.neighbor(friend, j);
+                if (mark[candidate] == epoch) continue;
+                if (common[candidate]++ == 0)
+                {
+                    if (size == touched.length) touched = Arrays.copyOf(touched, 2 * size);
+                    touched[size++] = candidate;
+                }
+                if (w != 0) weight[candidate] += w;
+            }
+        }
+        candidates = size;
+
+        // keeps the k best candidates in a min-heap, resetting the counters; at
+        // most size of them exist, however large k is
+        if (heap.length < Math.min(k, size))
+        {
+            heap = new int[Math.min(k, size)];
+            heapScores = new double[heap.length];
+        }
+        int kept = 0;
+        for (int i = 0; i < size; i++)
+        {
+            int c = touched[i];
+            double s;
+            switch (score)
+            {
+                case COMMON_NEIGHBORS: s = common[c]; break;
+                case ADAMIC_ADAR:      s = weight[c]; break;
+                default:               s = (double) common[c] / (degree + graph.degree(c) - common[c]);
+            }
+            common[c] = 0;
+            weight[c] = 0;
+            if (kept < k)
+            {
+                heap[kept] = c;
+                heapScores[kept] = s;
+                up(kept++);
+            }
+            else if (k > 0 && better(s, c, heapScores[0], heap[0]))
+            {
+                heap[0] = c;
+                heapScores[0] = s;
+                down(0, kept);
+            }
+        }
+
+        // pops the heap from the worst candidate to the best one
+        int[] result = new int[kept];
+        for (int i = kept - 1; i >= 0; i--)
+        {
+            result[i] = heap[0];
+            if (scores != null) scores[i] = heapScores[0];
+            heap[0] = heap[i];
+            heapScores[0] = heapScores[i];
+            down(0, i);
+        }
+        return result;
+    }
+
+    // Returns true if candidate a with score s ranks above candidate b with score t
+    private static boolean better(double s, int a, double t, int b)
+    {
+        return s > t || (s == t && a < b);
+    }
+
+    private void up(int i)
+    {
+        while (i > 0)
+        {
+            int parent = (i - 1) >>> 1;
+            if (!better(heapScores[parent], heap[parent], heapScores[i], heap[i])) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void down(int i, int size)
+    {
+        while (true)
+        {
+            int worst = i, left = 2 * i + 1, right = left + 1;
+            if (left < size && better(heapScores[worst], heap[worst], heapScores[left], heap[left])) worst = left;
+            if (right < size && better(heapScores[worst], heap[worst], heapScores[right], heap[right])) worst = right;
+            if (worst == i) return;
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int i, int j)
+    {
+        int id = heap[i];
+        heap[i] = heap[j];
+        heap[j] = id;
+        double s = heapScores[i];
+        heapScores[i] = heapScores[j];
+        heapScores[j] = s;
+    }
+
+    //REQUIRES: graph ≠ null ∧ users ≠ null ∧ k ≥ 0 ∧ score ≠ null ∧ pool ≠ null
+    //          graph is symmetric
+    //          0 ≤ users[i] < graph.size() ∀ i
+    //EFFECTS:  Returns result such that result[i] == recommend(users[i], k, score, null)
+    //          ∀ i, answering the queries on pool with one engine per worker.
+    //          If an argument is null ∨ k < 0
+    //                                  throws IllegalArgumentException (unchecked).
+    //          If a user is out of bounds
+    //                                  throws IndexOutOfBoundsException (unchecked).
+    public static int[][] recommend(IndexedGraph<?> graph, int[] users, int k, Score score, ForkJoinPool pool)
+        throws IllegalArgumentException
+    {
+        if (graph == null || users == null || k < 0 || score == null || pool == null)
+            throw new IllegalArgumentException();
+        int[][] result = new int[users.length][];
+        ConcurrentLinkedQueue<FriendRecommender> engines = new ConcurrentLinkedQueue<>();
+        int threshold = Math.max(16, users.length / (pool.getParallelism() * 8));
+        pool.invoke(new Batch(graph, users, k, score, result, engines, threshold, 0, users.length));
+        return result;
+    }
+
+    // Answers the queries users[from .. to)
+    private static class Batch extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final IndexedGraph<?> graph;
+        private final int[] users;
+        private final int k;
+        private final Score score;
+        private final int[][] result;
+        private final ConcurrentLinkedQueue<FriendRecommender> engines;
+        private final int threshold, from, to;
+
+        Batch(IndexedGraph<?> graph, int[] users, int k, Score score, int[][] result,
+              ConcurrentLinkedQueue<FriendRecommender> engines, int threshold, int from, int to)
+        {
+            this.graph = graph;
+            this.users = users;
+            this.k = k;
+            this.score = score;
+            this.result = result;
+            this.engines = engines;
+            this.threshold = threshold;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > threshold)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Batch(graph, users, k, score, result, engines, threshold, from, middle),
+                          new Batch(graph, users, k, score, result, engines, threshold, middle, to));
+                return;
+            }
+            FriendRecommender engine = engines.poll();
+            if (engine == null) engine = new FriendRecommender(graph);
+            for (int i = from; i < to; i++) result[i] = engine.recommend(users[i], k, score, null);
+            engines.offer(engine);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+import java.lang.IllegalArgumentException;
+
+public class FringeDiameter
+{
+    /* OVERVIEW:
+     * The class FringeDiameter computes the diameter of a symmetric IndexedGraph,
+     * i.e. the maximum finite distance between two of its nodes, with the iFUB
+     * (iterative Fringe Upper Bound) algorithm, which usually needs a handful of
+     * BFS traversals instead of one per node.
+     * Every connected component is processed separately:
+     *  - a double sweep from the highest degree node h (BFS from h, then from the
+     *    farthest node a found) gives the lower bound lb = ecc(a);
+     *  - the root r is either h or the middle node of the path between a and the
+     *    farthest node from a, whichever has the lowest eccentricity;
+     *  - a BFS from r splits the component in fringes F_i = { v : d(r,v) = i };
+     *  - fringes are visited from the farthest one: since any two nodes closer
+     *    than i to r are at most 2(i-1) apart, once the eccentricities of
+     *    F_i ∪ F_i+1 ∪ ... have been computed, the diameter is either the largest
+     *    of them or at most ub = 2(i-1).
+     * The search stops as soon as ub - lb ≤ tolerance, thus with tolerance 0 the
+     * result is exact, otherwise it is a lower bound off by at most tolerance.
+     * Components that cannot beat the best bound found so far are pruned;
+     * component(int, int) processes a single component instead.
+     * Instances are not thread safe.
+     */
+
+    private final IndexedGraph<?> graph;
+    private final BreadthFirstSearch search;
+    private int searches;       // number of BFS traversals run by the last computation
+    private int upperBound;     // upper bound on the diameter found by the last computation
+    private int witness;        // node whose eccentricity is the result of the last computation
+    private int endpoint;       // witness and upper bound of the last component processed
+    private int bound;
+    private int[] order;        // nodes of the current component in BFS order from the root
+    private int[] fringe;       // fringe[i] = position in order of the first node of F_i
+    private int[] fromA;        // distances from the first double sweep endpoint
+
+    //REQUIRES: graph ≠ null
+    //          graph is symmetric
+    //EFFECTS:  Creates a computation over graph.
+    //          If graph == null        throws IllegalArgumentException (unchecked).
+    public FringeDiameter(IndexedGraph<?> graph) throws IllegalArgumentException
+    {
+        if (graph == null) throw new IllegalArgumentException();
+        this.graph = graph;
+        this.search = new BreadthFirstSearch(graph);
+    }
+
+    //EFFECTS: Returns the number of BFS traversals run by the last computation
+    public int searches()
+    {
+        return searches;
+    }
+
+    //EFFECTS: Returns the upper bound on the diameter established by the last computation
+    public int upperBound()
+    {
+        return upperBound;
+    }
+
+    //EFFECTS: Returns a node whose eccentricity equals the result of the last
+    //         computation, i.e. an endpoint of a longest shortest path found (-1 if
+    //         graph is empty)
+    public int witness()
+    {
+        return witness;
+    }
+
+    //REQUIRES: tolerance ≥ 0
+    //EFFECTS:  Returns a value d such that d ≤ D ≤ d + tolerance, where D is the
+    //          diameter of graph (-1 if graph is empty). If tolerance == 0 then d == D.
+    //          If tolerance < 0        throws IllegalArgumentException (unchecked).
+    public int compute(int tolerance) throws IllegalArgumentException
+    {
+        if (tolerance < 0) throw new IllegalArgumentException();
+        final int n = graph.size();
+        boolean[] assigned = new boolean[n];
+        allocate();
+
+        searches = 0;
+        witness = n > 0 ? 0 : -1;
+        int lower = n > 0 ? 0 : -1, upper = lower;
+
+        for (int start = 0; start < n; start++)
+        {
+            if (assigned[start]) continue;
+            int lb = component(start, tolerance, lower, assigned);
+            if (lb > lower) { lower = lb; witness = endpoint; }
+            upper = Math.max(upper, bound);
+        }
+
+        upperBound = Math.max(upper, lower);
+        return lower;
+    }
+
+    //REQUIRES: 0 ≤ node < graph.size()
+    //          tolerance ≥ 0
+    //EFFECTS:  Returns a value d such that d ≤ D ≤ d + tolerance, where D is the
+    //          diameter of the connected component of node. witness(), searches()
+    //          and upperBound() then refer to this component.
+    //          If tolerance < 0        throws IllegalArgumentException (unchecked).
+    //          If node is out of bounds
+    //                                  throws IndexOutOfBoundsException (unchecked).
+    public int component(int node, int tolerance) throws IllegalArgumentException
+    {
+        if (tolerance < 0) throw new IllegalArgumentException();
+        if (node < 0 || node >= graph.size()) throw new IndexOutOfBoundsException();
+        allocate();
+        searches = 0;
+        int d = component(node, tolerance, -1, null);
+        witness = endpoint;
+        upperBound = bound;
+        return d;
+    }
+
+    // Allocates the scratch arrays on first use
+    private void allocate()
+    {
+        if (order != null) return;
+        final int n = graph.size();
+        order = new int[n];
+        fringe = new int[n + 1];
+        fromA = new int[n];
+    }
+
+    // Runs iFUB on the component of start, marking its nodes in assigned if not
+    // null. Returns the diameter found, or lower if the component is too small
+    // to exceed it; sets endpoint to an end of the path found and bound to the
+    // upper bound proved.
+    private int component(int start, int tolerance, int lower, boolean[] assigned)
+    {
+        // enumerates the component and picks its highest degree node
+        search.eccentricity(start);
+        searches++;
+        int size = search.lastVisited(), root = start;
+        for (int i = 0; i < size; i++)
+        {
+            int v = search.reached(i);
+            if (assigned != null) assigned[v] = true;
+            if (graph.degree(v) > graph.degree(root)) root = v;
+        }
+        endpoint = start;
+        bound = size - 1;
+        if (size - 1 <= lower) return lower; // cannot hold a longer shortest path
+
+        // double sweep from the highest degree node, then moves the root to
+        // the middle of the path found if it has a lower eccentricity
+        int eccentricity = search.eccentricity(root);
+        int a = search.reached(search.lastVisited() - 1);
+        int lb = search.eccentricity(a);
+        endpoint = a;
+        for (int i = 0; i < size; i++)
+            fromA[search.reached(i)] = search.distanceTo(search.reached(i));
+        int b = search.reached(search.lastVisited() - 1), middle = root;
+        search.eccentricity(b);
+        for (int i = 0; i < size; i++)
+        {
+            int v = search.reached(i);
+            if (search.distanceTo(v) == lb - lb / 2 && fromA[v] == lb / 2) { middle = v; break; }
+        }
+        searches += 3;
+
+        if (search.eccentricity(middle) < eccentricity) root = middle;
+        eccentricity = search.eccentricity(root);
+        searches += 2;
+        for (int i = 0; i < size; i++)
+        {
+            int v = search.reached(i);
+            order[i] = v;
+            fringe[search.distanceTo(v) + 1] = i + 1;
+        }
+        int ub = Math.min(2 * eccentricity, size - 1);
+        if (eccentricity > lb) { lb = eccentricity; endpoint = root; }
+
+        // fringe upper bound
+        for (int i = eccentricity; ub - lb > tolerance && ub > lower && i > 0; i--)
+        {
+            for (int k = fringe[i]; k < fringe[i+1]; k++)
+            {
+                int e = search.eccentricity(order[k]);
+                if (e > lb) { lb = e; endpoint = order[k]; }
+                searches++;
+            }
+            ub = Math.max(lb, Math.min(ub, 2 * (i - 1)));
+        }
+        bound = ub;
+        return lb;
+    }
+}
@@ -1,6 +1,7 @@
 import java.lang.IllegalArgumentException;
 import java.util.NoSuchElementException;
 import java.util.Collection;
+import java.util.function.Consumer;
 
 public interface Graph<E>
 {
@@ -12,6 +13,9 @@ public interface Graph<E>
      * between elements ov V). Every element of V shall have a label or info used to
      * identify it along with a collection of every outgoing connection, as described
      * in Node<E>, which implicitly defines E'.
+     * Connections can be added by label, without building an Edge<E>, and
+     * adjacencies are read through read-only views or forEachNeighbor, so
+     * implementations can serve both without copying or allocating.
      */
 
     //REQUIRES: node ≠ null
@@ -35,6 +39,42 @@ public interface Graph<E>
     //          If edge == null         throws IllegalArgumentException (unchecked).
     void addEdge(Edge<E> edge) throws IllegalArgumentException;
 
+    //REQUIRES: outLabel ≠ null ∧ inLabel ≠ null
+    //MODIFIES: V, E'
+    //EFFECTS:  Same as addEdge(new Edge<E>(outLabel, inLabel)); implementations
+    //          should not allocate the Edge.
+    //          If outLabel == null ∨ inLabel == null
+    //                                  throws IllegalArgumentException (unchecked).
+    default void addEdge(E outLabel, E inLabel) throws IllegalArgumentException
+    {
+        addEdge(new Edge<E>(outLabel, inLabel));
+    }
+
+    //REQUIRES: u ≠ null ∧ w ≠ null
+    //MODIFIES: V, E'
+    //EFFECTS:  Adds both connections <u, w> and <w, u>, as addEdge(E, E) does.
+    //          If u == null ∨ w == null
+    //                                  throws IllegalArgumentException (unchecked).
+    default void addUndirectedEdge(E u, E w) throws IllegalArgumentException
+    {
+        if (u == null || w == null) throw new IllegalArgumentException();
+        addEdge(u, w);
+        addEdge(w, u);
+    }
+
+    //REQUIRES: edges ≠ null
+    //          e ≠ null ∀ e ∈ edges
+    //MODIFIES: V, E'
+    //EFFECTS:  Adds every edge of edges, in order, as addEdge(Edge<E>) does.
+    //          If edges == null ∨ an edge is null
+    //                                  throws IllegalArgumentException (unchecked);
+    //                                  the edges before it are added.
+    default void addEdges(Iterable<? extends Edge<E>> edges) throws IllegalArgumentException
+    {
+        if (edges == null) throw new IllegalArgumentException();
+        for (Edge<E> edge : edges) addEdge(edge);
+    }
+
     //REQUIRES: node ≠ null
     //          node ∈ V
     //MODIFIES: V, E'
@@ -73,12 +113,26 @@ public interface Graph<E>
 
     //REQUIRES: nodeLabel ≠ null
     //          getNode(nodeLabel) ∈ V
-    //EFFECTS:  Returns a collection C = [v¹, v², ..., vⁿ] : <v, w> ∈ E
+    //EFFECTS:  Returns a read-only collection C = [v¹, v², ..., vⁿ] : <v, w> ∈ E
     //              where v = getNode(nodeLabel), w ∈ C
     //          If nodeLabel == null    throws IllegalArgumentException
     //          If v \not ∈ V           throws NoSuchElementException
     Collection<E> getAdjacency(E nodeLabel) throws NoSuchElementException, IllegalArgumentException;
 
+    //REQUIRES: nodeLabel ≠ null ∧ action ≠ null
+    //          getNode(nodeLabel) ∈ V
+    //EFFECTS:  Invokes action on every w such that <v, w> ∈ E', where
+    //          v = getNode(nodeLabel), without copying the adjacency of v.
+    //          If nodeLabel == null ∨ action == null
+    //                                  throws IllegalArgumentException
+    //          If v \not ∈ V           throws NoSuchElementException
+    default void forEachNeighbor(E nodeLabel, Consumer<? super E> action)
+        throws NoSuchElementException, IllegalArgumentException
+    {
+        if (action == null) throw new IllegalArgumentException();
+        getAdjacency(nodeLabel).forEach(action);
+    }
+
     //NOT IMPLEMENTED (only useful for specification)
     //REQUIRES: nodeLabel ≠ null
     //          ∃ v ∈ V: v.getLabel() == nodeLabel
@@ -0,0 +1,165 @@
+import java.lang.IllegalArgumentException;
+import java.util.HashSet;
+import java.util.SplittableRandom;
+
+public class GraphGenerator
+{
+    /* OVERVIEW:
+     * The class GraphGenerator builds synthetic friendship graphs for benchmarks
+     * and tests. Every model yields n labels "u0" .. "u(n-1)" and a list of
+     * friendships as two parallel int[] of ids, ready to be handed to
+     * HashGraph<String>.addAll(labels(), sources(), targets(), true):
+     *  - randomFriends: the model used by Main, where every new user befriends
+     *    a fixed number of users drawn among the ones already inserted;
+     *  - erdosRenyi: G(n, m), m distinct friendships drawn uniformly at random;
+     *  - barabasiAlbert: preferential attachment, where every new user befriends
+     *    existing users with probability proportional to their degree, giving
+     *    a power-law degree distribution.
+     * Self loops are never generated. Results only depend on the seed.
+     */
+
+    private final long seed;
+    private String[] labels;
+    private int[] sources, targets;
+
+    //EFFECTS: Creates a generator whose graphs only depend on seed
+    public GraphGenerator(long seed)
+    {
+        this.seed = seed;
+        labels = new String[0];
+        sources = targets = new int[0];
+    }
+
+    private void labels(int n)
+    {
+        labels = new String[n];
+        for (int v = 0; v < n; v++) labels[v] = "u" + v;
+    }
+
+    //REQUIRES: n ≥ 0 ∧ friends ≥ 0
+    //MODIFIES: this
+    //EFFECTS:  Generates n users, each befriending friends users drawn uniformly
+    //          (with repetitions) among the ones generated before it; returns this.
+    //          If n < 0 ∨ friends < 0  throws IllegalArgumentException (unchecked).
+    public GraphGenerator randomFriends(int n, int friends) throws IllegalArgumentException
+    {
+        if (n < 0 || friends < 0) throw new IllegalArgumentException();
+        SplittableRandom random = new SplittableRandom(seed);
+        labels(n);
+        int m = 0;
+        sources = new int[Math.max(0, n - 1) * friends];
+        targets = new int[sources.length];
+        for (int v = 1; v < n; v++)
+        {
+            for (int i = 0; i < friends; i++, m++)
+            {
+                sources[m] = v;
+                targets[m] = random.nextInt(v);
+            }
+        }
+        return this;
+    }
+
+    //REQUIRES: n ≥ 0 ∧ 0 ≤ m ≤ n(n-1)/2
+    //MODIFIES: this
+    //EFFECTS:  Generates n users and m distinct friendships drawn uniformly at
+    //          random; returns this.
+    //          If the requirements are not met
+    //                                  throws IllegalArgumentException (unchecked).
+    public GraphGenerator erdosRenyi(int n, int m) throws IllegalArgumentException
+    {
+        if (n < 0 || m < 0 || m > (long) n * (n - 1) / 2) throw new IllegalArgumentException();
+        SplittableRandom random = new SplittableRandom(seed);
+        labels(n);
+        sources = new int[m];
+        targets = new int[m];
+        HashSet<Long> drawn = new HashSet<>(2 * m);
+        for (int e = 0; e < m; )
+        {
+            int u = random.nextInt(n), w = random.nextInt(n);
+            if (u == w) continue;
+            if (!drawn.add((long) Math.min(u, w) * n + Math.max(u, w))) continue;
+            sources[e] = u;
+            targets[e++] = w;
+        }
+        return this;
+    }
+
+    //REQUIRES: n ≥ 0 ∧ friends ≥ 1
+    //MODIFIES: this
+    //EFFECTS:  Generates n users: the first friends + 1 form a clique, every later
+    //          one befriends friends distinct users drawn with probability
+    //          proportional to their degree; returns this.
+    //          If n < 0 ∨ friends < 1  throws IllegalArgumentException (unchecked).
+    public GraphGenerator barabasiAlbert(int n, int friends) throws IllegalArgumentException
+    {
+        if (n < 0 || friends < 1) throw new IllegalArgumentException();
+        SplittableRandom random = new SplittableRandom(seed);
+        labels(n);
+        int clique = Math.min(n, friends + 1);
+        int m = clique * (clique - 1) / 2 + Math.max(0, n - clique) * friends;
+        sources = new int[m];
+        targets = new int[m];
+
+        // every friendship appends both ends to endpoints, so drawing a uniform
+        // element of endpoints picks a user with probability proportional to degree
+        int[] endpoints = new int[2 * m];
+        int e = 0;
+        for (int u = 0; u < clique; u++)
+        {
+            for (int w = u + 1; w < clique; w++, e++)
+            {
+                sources[e] = u;
+                targets[e] = w;
+                endpoints[2 * e] = u;
+                endpoints[2 * e + 1] = w;
+            }
+        }
+
+        int[] chosen = new int[friends];
+        for (int v = clique; v < n; v++)
+        {
+            int drawn = 0, limit = 2 * e;
+            while (drawn < friends)
+            {
+                int w = endpoints[random.nextInt(limit)];
+                boolean duplicate = false;
+                for (int i = 0; i < drawn && !duplicate; i++) duplicate = chosen[i] == w;
+                if (!duplicate) chosen[drawn++] = w;
+            }
+            for (int i = 0; i < friends; i++, e++)
+            {
+                sources[e] = v;
+                targets[e] = chosen[i];
+                endpoints[2 * e] = v;
+                endpoints[2 * e + 1] = chosen[i];
+            }
+        }
+        return this;
+    }
+
+    //EFFECTS: Returns the labels of the last generated graph, indexed by id
+    public String[] labels() { return labels; }
+
+    //EFFECTS: Returns the ids of the first user of every friendship
+    public int[] sources() { return sources; }
+
+    //EFFECTS: Returns the ids of the second user of every friendship
+    public int[] targets() { return targets; }
+
+    //EFFECTS: Returns a new HashGraph<String> holding the last generated graph,
+    //         with both connections of every friendship
+    public HashGraph<String> graph()
+    {
+        HashGraph<String> graph = new HashGraph<>(labels.length);
+        graph.addAll(labels, sources, targets, true);
+        return graph;
+    }
+
+    //EFFECTS: Returns a string representation of the current class instance
+    @Override
+    public String toString()
+    {
+        return labels.length + " users, " + sources.length + " friendships, seed " + seed;
+    }
+}
@@ -0,0 +1,253 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.IllegalArgumentException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GraphLoader
+{
+    /* OVERVIEW:
+     * The class GraphLoader reads a list of users (one per line) and a list of
+     * friendships (two users separated by blanks per line) from text files.
+     * Files are memory mapped and split in chunks ending at line boundaries,
+     * which are parsed in parallel on the common ForkJoinPool. Labels are
+     * interned to dense ids through a shared concurrent map, so that every user
+     * is represented by a single String however many times it appears, and
+     * friendships are returned as two parallel int[] of ids, ready to be handed
+     * to HashGraph<String>.addAll in a single pass.
+     * Parsers number labels in the order they happen to meet them, so once both
+     * files are parsed a sequential pass over the parsed ids renumbers labels by
+     * their first occurrence in file order: loading the same files always
+     * yields the same ids, and thus the same HashGraph insertion order.
+     * Users are numbered before friendships: ids [0, users()) belong to the users
+     * file, higher ids to users that only appear in the friendships file.
+     * I/O errors and malformed lines are reported as IOException.
+     */
+
+    private static final int MIN_CHUNK = 1 << 20;
+
+    private ConcurrentHashMap<String, Integer> ids;
+    private final AtomicInteger next;
+    private String[] labels;
+    private int[] sources, targets;
+    private int users;
+    private long bytes, nanos;
+
+    //EFFECTS: Creates a loader with no labels
+    public GraphLoader()
+    {
+        ids = new ConcurrentHashMap<>();
+        next = new AtomicInteger();
+        labels = new String[0];
+        sources = targets = new int[0];
+    }
+
+    //REQUIRES: users ≠ null ∧ friendships ≠ null
+    //MODIFIES: this
+    //EFFECTS:  Parses both files, interning every label.
+    //          If users == null ∨ friendships == null
+    //                                  throws IllegalArgumentException (unchecked).
+    //          If a file cannot be read or a line of friendships does not hold
+    //          exactly two labels      throws IOException.
+    public void load(Path users, Path friendships) throws IOException, IllegalArgumentException
+    {
+        if (users == null || friendships == null) throw new IllegalArgumentException();
+        final long start = System.nanoTime();
+
+        // guesses the number of labels from the size of the users file, so that
+        // ids does not keep resizing while parsers are looking labels up
+        long expected = Math.min(1 << 26, Files.size(users) / 8 + 16);
+        ids = new ConcurrentHashMap<>((int) expected, 0.75f, ForkJoinPool.getCommonPoolParallelism());
+        next.set(0);
+        bytes = 0;
+
+        List<int[]> names = parse(users, 1);
+        List<int[]> chunks = parse(friendships, 2);
+
+        // renumbers labels by first occurrence, users file first
+        int[] order = new int[next.get()];
+        Arrays.fill(order, -1);
+        int id = 0;
+        for (int[] chunk : names)
+            for (int label : chunk)
+                if (order[label] == -1) order[label] = id++;
+        this.users = id;
+
+        int edges = 0;
+        for (int[] chunk : chunks) edges += chunk.length / 2;
+        sources = new int[edges];
+        targets = new int[edges];
+        int e = 0;
+        for (int[] chunk : chunks)
+        {
+            for (int i = 0; i < chunk.length; i += 2, e++)
+            {
+                if (order[chunk[i]] == -1) order[chunk[i]] = id++;
+                if (order[chunk[i+1]] == -1) order[chunk[i+1]] = id++;
+                sources[e] = order[chunk[i]];
+                targets[e] = order[chunk[i+1]];
+            }
+        }
+
+        labels = new String[id];
+        ids.forEach((label, parsed) -> labels[order[parsed]] = label);
+        nanos = System.nanoTime() - start;
+    }
+
+    // Splits file in chunks and parses them in parallel, each into the ids of
+    // its labels; every non empty line must hold exactly 'fields' labels
+    // (a single label spanning the whole line if fields == 1).
+    private List<int[]> parse(Path file, int fields) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            final long size = channel.size();
+            bytes += size;
+            List<long[]> bounds = split(channel, size);
+            List<int[]> chunks = new ArrayList<>();
+            for (int i = 0; i < bounds.size(); i++) chunks.add(null);
+
+            try
+            {
+                bounds.parallelStream().forEach(b ->
+                {
+                    try
+                    {
+                        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, b[0], b[1] - b[0]);
+                        chunks.set((int) b[2], parse(buffer, b[0], fields));
+                    }
+                    catch (IOException e) { throw new UncheckedIOException(e); }
+                });
+            }
+            catch (UncheckedIOException e)
+            {
+                throw new IOException(file + ": " + e.getCause().getMessage(), e.getCause());
+            }
+            return chunks;
+        }
+    }
+
+    // Returns chunks {from, to, index} covering [0, size) that end right after a newline
+    private static List<long[]> split(FileChannel channel, long size) throws IOException
+    {
+        final long target = Math.max(MIN_CHUNK, size / (ForkJoinPool.getCommonPoolParallelism() * 4L));
+        final long limit = Integer.MAX_VALUE - 4096; // a mapping cannot exceed 2GB
+        List<long[]> bounds = new ArrayList<>();
+        ByteBuffer one = ByteBuffer.allocate(1);
+        long from = 0;
+
+        while (from < size)
+        {
+            long to = Math.min(size, from + Math.min(target, limit));
+            while (to < size && to - from < limit)
+            {
+                one.clear();
+                if (channel.read(one, to - 1) != 1) throw new IOException("unexpected end of file");
+                if (one.get(0) == '\n') break;
+                to++;
+            }
+            bounds.add(new long[] { from, to, bounds.size() });
+            from = to;
+        }
+        return bounds;
+    }
+
+    // Parses the lines of a chunk starting at the given file offset
+    private int[] parse(MappedByteBuffer buffer, long offset, int fields) throws IOException
+    {
+        int[] parsed = new int[64];
+        int count = 0;
+        byte[] scratch = new byte[64];
+        final int end = buffer.limit();
+        int line = 0;
+
+        while (line < end)
+        {
+            int eol = line;
+            while (eol < end && buffer.get(eol) != '\n') eol++;
+            int last = eol;
+            if (last > line && buffer.get(last - 1) == '\r') last--;
+
+            int found = 0, position = line;
+            while (position < last)
+            {
+                int from = position, to;
+                if (fields == 1) to = last;
+                else
+                {
+                    while (from < last && isBlank(buffer.get(from))) from++;
+                    to = from;
+                    while (to < last && !isBlank(buffer.get(to))) to++;
+                }
+                position = to;
+                if (from == to) continue;
+
+                if (++found > fields) break;
+                if (to - from > scratch.length) scratch = new byte[2 * (to - from)];
+                for (int i = from; i < to; i++) scratch[i - from] = buffer.get(i);
+                if (count == parsed.length) parsed = Arrays.copyOf(parsed, 2 * count);
+                parsed[count++] = intern(new String(scratch, 0, to - from, StandardCharsets.UTF_8));
+            }
+
+            if (found != 0 && found != fields)
+                throw new IOException("malformed line at byte " + (offset + line) +
+                        ": expected " + fields + " label(s), found " + found);
+            line = eol + 1;
+        }
+        return Arrays.copyOf(parsed, count);
+    }
+
+    private static boolean isBlank(byte b)
+    {
+        return b == ' ' || b == '\t';
+    }
+
+    // Returns the id of label, assigning the next free one if it is new
+    private int intern(String label)
+    {
+        Integer id = ids.get(label);
+        return id != null ? id : ids.computeIfAbsent(label, k -> next.getAndIncrement());
+    }
+
+    //EFFECTS: Returns the interned labels, indexed by id
+    public String[] labels() { return labels; }
+
+    //EFFECTS: Returns the ids of the first user of every friendship
+    public int[] sources() { return sources; }
+
+    //EFFECTS: Returns the ids of the second user of every friendship
+    public int[] targets() { return targets; }
+
+    //EFFECTS: Returns the number of labels read from the users file
+    public int users() { return users; }
+
+    //EFFECTS: Returns the number of friendships read
+    public int friendships() { return sources.length; }
+
+    //EFFECTS: Returns the number of bytes read
+    public long bytes() { return bytes; }
+
+    //EFFECTS: Returns the time spent parsing, in nanoseconds
+    public long nanos() { return nanos; }
+
+    //EFFECTS: Returns a string representation of the current class instance
+    @Override
+    public String toString()
+    {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        return String.format("%d labels, %d friendships, %.1f MB in %.1f ms (%.1f MB/s, %.0f friendships/s)",
+                labels.length, sources.length, bytes / 1e6, seconds * 1e3,
+                bytes / 1e6 / seconds, sources.length / seconds);
+    }
+}
@@ -0,0 +1,302 @@
+import java.lang.IllegalArgumentException;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+public class GraphMetrics implements GraphMetricsMBean
+{
+    /* OVERVIEW:
+     * The class GraphMetrics collects counters and latency histograms of the
+     * operations of a SocialNetwork and of its HashGraph, and publishes them as
+     * a JMX MBean and as JFR events (category "Social Network", recorded when a
+     * JFR recording enables them, e.g. java -XX:StartFlightRecording).
+     * Metrics are disabled by default. Instrumented code brackets an operation
+     * with start() and stop(): while disabled, start() only reads a volatile
+     * flag and returns 0, and stop() returns at once, so the overhead is a
+     * branch per operation. Enabling or disabling takes effect at the next
+     * operation, also through JMX.
+     * Counters are LongAdder and histograms LatencyHistogram, so any number of
+     * threads can record at once. Distance cache counters are read from the
+     * bound DistanceCache, whose owner may be updating them: they are
+     * approximate while queries run.
+     */
+
+    // Timed operations
+    public enum Operation { ADD_USER, ADD_FRIENDSHIP, REMOVE_USER, SHORTEST_PATH, WEIGHTED_PATH, DIAMETER, ADD_EDGE, GET_ADJACENCY }
+
+    private volatile boolean enabled;
+    private final EnumMap<Operation, LatencyHistogram> latencies;
+    private final LongAdder queries, visited, shortCircuits, diameters;
+    private final PriorityQueue<Long> running;  // starts of the running diameter computations
+    private volatile DistanceCache cache;
+    private ObjectName name;                    // null unless registered
+
+    //EFFECTS: Creates disabled metrics
+    public GraphMetrics()
+    {
+        latencies = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) latencies.put(operation, new LatencyHistogram());
+        queries = new LongAdder();
+        visited = new LongAdder();
+        shortCircuits = new LongAdder();
+        diameters = new LongAdder();
+        running = new PriorityQueue<>();
+    }
+
+    //EFFECTS: Returns true if metrics are being recorded
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Starts or stops recording metrics; recorded values are kept.
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Reads the hit and miss counters of cache from now on (none if null).
+    void bind(DistanceCache cache)
+    {
+        this.cache = cache;
+    }
+
+    //EFFECTS: Returns System.nanoTime() if enabled, 0 otherwise, to be passed to stop()
+    public long start()
+    {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    //REQUIRES: operation ≠ null
+    //MODIFIES: this
+    //EFFECTS:  Records the latency of operation if start ≠ 0, i.e. if metrics were
+    //          enabled when start() returned it.
+    public void stop(Operation operation, long start)
+    {
+        if (start != 0) latencies.get(operation).record(System.nanoTime() - start);
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Records a shortestPath query started at start (see start()) that
+    //          visited the given number of users, or was answered by the component
+    //          index if shortCircuited, and commits a JFR event for it.
+    public void shortestPath(String source, String destination, int distance, int visited,
+                             boolean shortCircuited, long start)
+    {
+        if (start == 0) return;
+        long duration = System.nanoTime() - start;
+        latencies.get(Operation.SHORTEST_PATH).record(duration);
+        queries.increment();
+        this.visited.add(visited);
+        if (shortCircuited) shortCircuits.increment();
+
+        ShortestPathEvent event = new ShortestPathEvent();
+        if (event.isEnabled())
+        {
+            event.source = source;
+            event.destination = destination;
+            event.distance = distance;
+            event.visited = visited;
+            event.latency = duration;
+            event.commit();
+        }
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Marks the beginning of a diameter computation, returning the
+    //          value to be passed to diameterFinished.
+    public long diameterStarted()
+    {
+        long start = start();
+        if (start != 0) synchronized (running) { running.add(start); }
+        return start;
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Marks the end of a diameter computation started at start with the
+    //          given algorithm and result, committing a JFR event for it.
+    public void diameterFinished(String algorithm, int diameter, long start)
+    {
+        if (start == 0) return;
+        long duration = System.nanoTime() - start;
+        synchronized (running) { running.remove(start); }
+        latencies.get(Operation.DIAMETER).record(duration);
+        diameters.increment();
+
+        DiameterEvent event = new DiameterEvent();
+        if (event.isEnabled())
+        {
+            event.algorithm = algorithm;
+            event.diameter = diameter;
+            event.latency = duration;
+            event.commit();
+        }
+    }
+
+    public long getShortestPathQueries() { return queries.sum(); }
+    public long getShortestPathVisited() { return visited.sum(); }
+    public long getUnreachableShortCircuits() { return shortCircuits.sum(); }
+    public long getDiameterComputations() { return diameters.sum(); }
+
+    public double getShortestPathMeanVisited()
+    {
+        long count = queries.sum();
+        return count == 0 ? 0 : (double) visited.sum() / count;
+    }
+
+    public long getDistanceCacheHits()
+    {
+        DistanceCache cache = this.cache;
+        return cache == null ? 0 : cache.hits();
+    }
+
+    public long getDistanceCacheMisses()
+    {
+        DistanceCache cache = this.cache;
+        return cache == null ? 0 : cache.misses();
+    }
+
+    public double getDistanceCacheHitRate()
+    {
+        long hits = getDistanceCacheHits(), lookups = hits + getDistanceCacheMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    //EFFECTS: Returns the milliseconds since the oldest running diameter computation
+    //         started, 0 if none is running
+    public long getDiameterRunningMillis()
+    {
+        Long since;
+        synchronized (running) { since = running.peek(); }
+        return since == null ? 0 : (System.nanoTime() - since) / 1_000_000;
+    }
+
+    //EFFECTS: Returns the names of the timed operations
+    public String[] getOperations()
+    {
+        String[] names = new String[Operation.values().length];
+        for (Operation operation : Operation.values()) names[operation.ordinal()] = operation.name();
+        return names;
+    }
+
+    //REQUIRES: operation ≠ null
+    //EFFECTS:  Returns the latency histogram of operation.
+    public LatencyHistogram latency(Operation operation)
+    {
+        return latencies.get(operation);
+    }
+
+    //EFFECTS:  Returns the number of timed executions of the named operation.
+    //          If no operation has that name
+    //                                  throws IllegalArgumentException (unchecked).
+    public long count(String operation) throws IllegalArgumentException
+    {
+        return latencies.get(Operation.valueOf(operation)).count();
+    }
+
+    //EFFECTS:  Returns the given percentile (in [0, 1]) of the latencies of the
+    //          named operation, in microseconds.
+    //          If no operation has that name ∨ percentile ∉ [0, 1]
+    //                                  throws IllegalArgumentException (unchecked).
+    public double latencyPercentile(String operation, double percentile) throws IllegalArgumentException
+    {
+        return latencies.get(Operation.valueOf(operation)).percentile(percentile) / 1e3;
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Forgets every value recorded so far, except the distance cache
+    //          counters, which belong to the cache.
+    public void reset()
+    {
+        for (LatencyHistogram histogram : latencies.values()) histogram.reset();
+        queries.reset();
+        visited.reset();
+        shortCircuits.reset();
+        diameters.reset();
+    }
+
+    //REQUIRES: name ≠ null
+    //MODIFIES: this
+    //EFFECTS:  Registers this as the MBean SocialNetwork:type=GraphMetrics,name=<name>
+    //          on the platform MBean server and returns its ObjectName.
+    //          If name == null         throws IllegalArgumentException (unchecked).
+    //          If the registration fails, e.g. the name is taken
+    //                                  throws JMException.
+    public synchronized ObjectName register(String name) throws JMException, IllegalArgumentException
+    {
+        if (name == null) throw new IllegalArgumentException();
+        ObjectName objectName = new ObjectName("SocialNetwork:type=GraphMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.name = objectName;
+        return objectName;
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Unregisters this from the platform MBean server, if registered.
+    //          If the server refuses   throws JMException.
+    public synchronized void unregister() throws JMException
+    {
+        if (name == null) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(name)) server.unregisterMBean(name);
+        name = null;
+    }
+
+    //EFFECTS: Returns a summary of every metric, one per line
+    public String summary()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("shortestPath: %d queries, %.1f users visited on average, %d short-circuited%n",
+                getShortestPathQueries(), getShortestPathMeanVisited(), getUnreachableShortCircuits()));
+        sb.append(String.format("distance cache: %d hits, %d misses (%.1f%%)%n",
+                getDistanceCacheHits(), getDistanceCacheMisses(), 100 * getDistanceCacheHitRate()));
+        sb.append(String.format("diameter: %d computations, running for %d ms%n",
+                getDiameterComputations(), getDiameterRunningMillis()));
+        for (Operation operation : Operation.values())
+            sb.append(operation).append(": ").append(latencies.get(operation)).append(System.lineSeparator());
+        return sb.toString();
+    }
+
+    //EFFECTS: Returns a string representation of the current class instance
+    @Override
+    public String toString()
+    {
+        return summary();
+    }
+
+    @Name("socialnetwork.ShortestPath")
+    @Label("Shortest Path")
+    @Category("Social Network")
+    @Description("A SocialNetwork.shortestPath query")
+    static class ShortestPathEvent extends Event
+    {
+        @Label("Source") String source;
+        @Label("Destination") String destination;
+        @Label("Distance") int distance;
+        @Label("Visited Users") int visited;
+        @Label("Latency") @Timespan long latency; // "duration" is reserved by Event
+    }
+
+    @Name("socialnetwork.Diameter")
+    @Label("Diameter")
+    @Category("Social Network")
+    @Description("A diameter computation of a SocialNetwork")
+    static class DiameterEvent extends Event
+    {
+        @Label("Algorithm") String algorithm;
+        @Label("Diameter") int diameter;
+        @Label("Latency") @Timespan long latency;
+    }
+}
@@ -0,0 +1,29 @@
+public interface GraphMetricsMBean
+{
+    /* OVERVIEW:
+     * The management interface of GraphMetrics, as seen through JMX (e.g. from
+     * jconsole or VisualVM): attributes are the getters, operations the other
+     * methods. Latencies are in microseconds.
+     */
+
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+
+    long getShortestPathQueries();
+    long getShortestPathVisited();
+    double getShortestPathMeanVisited();
+    long getUnreachableShortCircuits();
+
+    long getDistanceCacheHits();
+    long getDistanceCacheMisses();
+    double getDistanceCacheHitRate();
+
+    long getDiameterComputations();
+    long getDiameterRunningMillis();
+
+    String[] getOperations();
+    long count(String operation);
+    double latencyPercentile(String operation, double percentile);
+    String summary();
+    void reset();
+}
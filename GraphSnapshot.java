@@ -0,0 +1,147 @@
+import java.lang.IllegalArgumentException;
+import java.lang.UnsupportedOperationException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+public class GraphSnapshot<E> implements Graph<E>, Iterable<E>
+{
+    /* OVERVIEW:
+     * The class GraphSnapshot<E> represents an immutable version of a HashGraph<E>,
+     * as returned by HashGraph<E>.snapshot(). It maps every label to an array
+     * holding its adjacency inside a PersistentMap, so consecutive versions of
+     * the same graph share every node that did not change in between.
+     * Instances never change, whatever happens to the graph they were taken
+     * from, hence they can be traversed from any thread while the graph keeps
+     * being modified, e.g. by long running analytics.
+     *
+     * AF:  { <k, { a[0], ..., a[a.length-1] }> : <k, a> ∈ adjacency }
+     *
+     * IR:  - adjacency ≠ null
+     *      - for every <k, a> ∈ adjacency: k ∉ a and the elements of a are
+     *        pairwise distinct
+     */
+
+    private final PersistentMap<E, Object[]> adjacency;
+    private final long version;
+
+    //REQUIRES: adjacency satisfies the IR (only HashGraph<E>.snapshot() builds instances)
+    GraphSnapshot(PersistentMap<E, Object[]> adjacency, long version)
+    {
+        this.adjacency = adjacency;
+        this.version = version;
+    }
+
+    //EFFECTS: Returns the number of snapshots taken from the same graph before this one
+    public long version()
+    {
+        return version;
+    }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void addNode(Node<E> node) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void addNode(E nodeLabel) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void addEdge(Edge<E> edge) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void removeNode(Node<E> node) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void removeNode(E nodeLabel) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void removeEdge(Edge<E> edge) { throw new UnsupportedOperationException(); }
+
+    //REQUIRES: nodeLabel ≠ null
+    //EFFECTS:  Returns true if nodeLabel was a node of the graph when this was taken.
+    //          If nodeLabel == null    throws IllegalArgumentException (unchecked).
+    public boolean containsNode(E nodeLabel) throws IllegalArgumentException
+    {
+        return adjacency.containsKey(nodeLabel);
+    }
+
+    //EFFECTS: Returns the number of nodes
+    public int size()
+    {
+        return adjacency.size();
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //          containsNode(nodeLabel) == true
+    //EFFECTS:  Returns a read-only view of the adjacency of nodeLabel.
+    //          If nodeLabel == null    throws IllegalArgumentException
+    //          If containsNode(nodeLabel) == false
+    //                                  throws NoSuchElementException
+    @SuppressWarnings("unchecked")
+    public Collection<E> getAdjacency(E nodeLabel) throws NoSuchElementException, IllegalArgumentException
+    {
+        Object[] targets = adjacency.get(nodeLabel);
+        if (targets == null) throw new NoSuchElementException();
+        return Collections.unmodifiableList(Arrays.asList((E[]) targets));
+    }
+
+    //EFFECTS: Returns a read-only iterator over the labels
+    public Iterator<E> iterator()
+    {
+        final Iterator<Map.Entry<E, Object[]>> entries = adjacency.iterator();
+        return new Iterator<E>()
+        {
+            public boolean hasNext() { return entries.hasNext(); }
+            public E next() { return entries.next().getKey(); }
+        };
+    }
+
+    //EFFECTS:  Returns a CompactGraph<E> holding the same nodes and connections,
+    //          in O(|V| + |E'|), e.g. to run id based algorithms on this version.
+    //          Connections towards labels that are not nodes are dropped.
+    public CompactGraph<E> freeze()
+    {
+        final int n = adjacency.size();
+        Object[] labels = new Object[n];
+        HashMap<E, Integer> ids = new HashMap<>(n + n / 3 + 1);
+        int id = 0, edges = 0;
+        for (Map.Entry<E, Object[]> entry : adjacency)
+        {
+            labels[id] = entry.getKey();
+            ids.put(entry.getKey(), id++);
+            edges += entry.getValue().length;
+        }
+
+        // iterating twice over the same trie visits the labels in the same order
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[edges];
+        int v = 0, e = 0;
+        for (Map.Entry<E, Object[]> entry : adjacency)
+        {
+            offsets[v++] = e;
+            for (Object w : entry.getValue())
+            {
+                Integer t = ids.get(w);
+                if (t != null) targets[e++] = t;
+            }
+        }
+        offsets[n] = e;
+        if (e < edges) targets = Arrays.copyOf(targets, e);
+        return new CompactGraph<>(labels, ids, offsets, targets);
+    }
+
+    //EFFECTS: Returns a string representation of the current class instance
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (Map.Entry<E, Object[]> entry : adjacency)
+        {
+            sb.append(entry.getKey() + ": " + Arrays.toString(entry.getValue()) + "\n");
+        }
+        return sb.toString();
+    }
+}
@@ -1,8 +1,15 @@
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Collections;
 import java.lang.IllegalArgumentException;
 import java.util.NoSuchElementException;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
 
 public class HashGraph<E> implements Graph<E>, Iterable<E>
 {
@@ -16,6 +23,21 @@ public class HashGraph<E> implements Graph<E>, Iterable<E>
      * in Node<E>, which implicitly defines E'.
      * Nodes are collected with an HashMap<E, Node<E>> where the set of node labels
      * (of type E) are mapped into nodes (of type Node<E>).
+     * Labels are also kept densely packed inside the list vertices, where slots
+     * maps every label to its position: removals move the last label into the
+     * freed position, so that a uniformly random node can be drawn in O(1).
+     * The map incoming indexes connections backwards: incoming.get(w) holds the
+     * labels of every node with a connection towards w, so that removing a node
+     * along with its incoming connections costs O(in-degree + out-degree).
+     * Adjacencies are handed out as the read-only views of Node<E>.getAdjacency(),
+     * so connections can only be changed through this class and the index
+     * stays consistent; addEdge(E, E) and forEachNeighbor allocate nothing
+     * beyond the storage of a new connection.
+     * Once snapshot() has been called, published holds the adjacency of every
+     * node as of the last snapshot inside a PersistentMap, and dirty the labels
+     * changed since then: writers only record the labels they touch, in O(1),
+     * and the next snapshot() folds them into a new version of published,
+     * sharing the rest of the map with the previous snapshots.
      *
      * AF:  { <k¹, f(k¹)>, <k², f(k²)>, ... , <kⁿ, f(kⁿ)> }
      *          where f(k) : nodeMap.keySet() -> nodeMap.values()
@@ -27,40 +49,114 @@ public class HashGraph<E> implements Graph<E>, Iterable<E>
      *      - k ∈ nodeMap.keyset() ⇒ ∃ v ∈ nodeMap.values() : nodeMap.get(k) == v
      *      - k ∈ nodeMap.keySet() ⇒ nodeMap.keySet() == (addNode(k) ↓ nodeMap.keySet()) ∧ 
      *                               nodeMap.values() == (addNode(k) ↓ nodeMap.values())
+     *      - vertices ≠ null ∧ slots ≠ null
+     *      - vertices.size() == slots.size() == nodeMap.size()
+     *      - vertices.get(slots.get(k)) == k ∀ k ∈ nodeMap.keySet()
+     *      - nodeMap.get(k).getLabel() == k ∀ k ∈ nodeMap.keySet()
+     *      - incoming ≠ null
+     *      - u ∈ incoming.get(w) ⇔ w ∈ nodeMap.get(u).getAdjacency()
+     *      - w ∈ incoming.keySet() ⇒ incoming.get(w) ≠ ∅
+     *      - published == null ⇒ dirty.isEmpty()
+     *      - published ≠ null ∧ k ∉ dirty ⇒ (k ∈ nodeMap.keySet() ⇔ published.get(k) ≠ null) ∧
+     *        published.get(k) holds the elements of nodeMap.get(k).getAdjacency()
      *  where '↓' means apply left method before evaluating the right one.
      */
 
     private HashMap<E, Node<E>> nodeMap; // not synchronized hash table
-
-    // used to verify pre/post condition via assertions
+    private ArrayList<E> vertices;       // dense, unordered list of labels
+    private HashMap<E, Integer> slots;   // label -> position inside vertices
+    private HashMap<E, HashSet<E>> incoming; // label -> labels connected towards it
+
+    // copy-on-write versions, see snapshot()
+    private PersistentMap<E, Object[]> published; // null until the first snapshot
+    private HashSet<E> dirty;            // labels changed since the last snapshot
+    private long versions;               // snapshots taken so far
+    private GraphMetrics metrics;        // null: addEdge and getAdjacency are not timed
+
+    // invariant checking policy, see setFullCheckPeriod and setCheckSamples
+    private int fullCheckPeriod;         // 0: never run the full check after construction
+    private int checkSamples;            // random entries verified by each incremental check
+    private long checks;                 // incremental checks run so far
+    private SplittableRandom sampler;
+
+    // used to verify pre/post condition via assertions, in O(|V| + |E'|)
     private boolean repOk()
     {
-        if (nodeMap == null) return false;
-
-        for (E k : nodeMap.keySet()) 
-            if (k == null) return false;
-
-        for (E k : nodeMap.keySet()) 
-            if (nodeMap.get(k) == null) return false;
+        if (nodeMap == null || vertices == null || slots == null || incoming == null) return false;
+        if (vertices.size() != nodeMap.size() || slots.size() != nodeMap.size()) return false;
 
         // statement: <k¹,k²> ∈ nodeMap.keySet() ⇒ k¹ ≠ k² 
         // is automatically verified because nodeMap.keySet() cannot contain
-        // dupllicates as it implements Set<E>
+        // dupllicates as it implements Set<E>.
+        // Likewise, since every k ∈ nodeMap.keySet() is already mapped,
+        // addNode(k) cannot change nodeMap (putIfAbsent), so the last
+        // statement of the IR only requires k to be a valid mapping.
+        for (E k : nodeMap.keySet()) 
+            if (!repOkEntry(k)) return false;
 
-        for (E k : nodeMap.keySet())
-            if (!nodeMap.values().contains(nodeMap.get(k))) return false;
+        int connections = 0, indexed = 0;
+        for (E u : nodeMap.keySet())
+        {
+            for (E w : nodeMap.get(u).getAdjacency())
+            {
+                HashSet<E> sources = incoming.get(w);
+                if (sources == null || !sources.contains(u)) return false;
+                connections++;
+            }
+        }
+        for (HashSet<E> sources : incoming.values())
+        {
+            if (sources.isEmpty()) return false;
+            indexed += sources.size();
+        }
 
+        if (connections != indexed) return false;
+
+        if (published == null) return dirty.isEmpty();
         for (E k : nodeMap.keySet())
         {
-            // cannot test for set equality since we do not infornce deep cloning
-            // (although we could), so we test for set sizes
-            int keys = nodeMap.keySet().size();
-            int values = nodeMap.values().size();
-            addNode(k); // ↓
-            if (nodeMap.keySet().size() != keys) return false;
-            if (nodeMap.values().size() != values) return false;
+            if (dirty.contains(k)) continue;
+            Object[] adjacency = published.get(k);
+            if (adjacency == null || adjacency.length != nodeMap.get(k).getAdjacency().size()) return false;
+            for (Object w : adjacency)
+                if (!nodeMap.get(k).getAdjacency().contains(w)) return false;
         }
+        for (Map.Entry<E, Object[]> entry : published)
+            if (!dirty.contains(entry.getKey()) && !nodeMap.containsKey(entry.getKey())) return false;
+        return true;
+    }
+
+    // Verifies the IR restricted to the mapping of k, in O(1)
+    private boolean repOkEntry(E k)
+    {
+        if (k == null) return false;
+        Node<E> node = nodeMap.get(k);
+        Integer slot = slots.get(k);
+        if (node == null) return slot == null;
+        if (!k.equals(node.getLabel())) return false;
+        return slot != null && slot < vertices.size() && vertices.get(slot).equals(k);
+    }
+
+    // used to verify pre/post condition via assertions after touching the mapping
+    // of k: checks that mapping, checkSamples random ones and, every fullCheckPeriod
+    // calls, the whole IR
+    private boolean repOk(E k)
+    {
+        return repOkSampled() && repOkEntry(k);
+    }
+
+    // used to verify pre/post condition via assertions without touching any
+    // mapping: checks checkSamples random mappings and, every fullCheckPeriod
+    // calls (shared with repOk(k)), the whole IR
+    private boolean repOkSampled()
+    {
+        if (nodeMap == null || vertices == null || slots == null || incoming == null) return false;
+        if (vertices.size() != nodeMap.size() || slots.size() != nodeMap.size()) return false;
+
+        for (int i = 0; i < checkSamples && !vertices.isEmpty(); i++)
+            if (!repOkEntry(vertices.get(sampler.nextInt(vertices.size())))) return false;
 
+        if (fullCheckPeriod > 0 && ++checks % fullCheckPeriod == 0) return repOk();
         return true;
     }
 
@@ -68,21 +164,51 @@ public class HashGraph<E> implements Graph<E>, Iterable<E>
     //EFFECTS: Creates a new instance of nodeMap with no elements in it.
     public HashGraph() 
     { 
-        nodeMap = new HashMap<E, Node<E>>();
+        this(12);
+    }
+
+    //REQUIRES: expectedSize ≥ 0
+    //MODIFIES: nodeMap
+    //EFFECTS:  Creates a new instance of nodeMap with no elements in it, whose
+    //          hash tables can hold expectedSize nodes without being resized.
+    //          If expectedSize < 0     throws IllegalArgumentException (unchecked).
+    public HashGraph(int expectedSize) throws IllegalArgumentException
+    {
+        if (expectedSize < 0) throw new IllegalArgumentException();
+        int capacity = expectedSize + expectedSize / 3 + 1;
+        nodeMap = new HashMap<E, Node<E>>(capacity);
+        vertices = new ArrayList<E>(expectedSize);
+        slots = new HashMap<E, Integer>(capacity);
+        incoming = new HashMap<E, HashSet<E>>(capacity);
+        published = null;
+        dirty = new HashSet<E>();
+        versions = 0;
+        fullCheckPeriod = 0;
+        checkSamples = 0;
+        checks = 0;
+        sampler = new SplittableRandom();
         assert(repOk());
     }
 
     //REQUIRES: node ≠ null
-    //MODIFIES: nodeMap
-    //EFFECTS:  Adds a mapping from node.getLabel() to node inside nodeMap.
+    //MODIFIES: nodeMap, vertices, slots, incoming
+    //EFFECTS:  Adds a mapping from node.getLabel() to node inside nodeMap,
+    //          appends node.getLabel() to vertices and indexes the connections
+    //          of node inside incoming.
     //          If there already exists such a mapping then does nothing.
     //          If node == null         throws IllegalArgumentException (unchecked).
     public void addNode(Node<E> node) throws IllegalArgumentException
     { 
-        assert(repOk());
         if (node == null) throw new IllegalArgumentException();
-        nodeMap.putIfAbsent(node.getLabel(), node); 
-        assert(repOk());
+        assert(repOk(node.getLabel()));
+        if (nodeMap.putIfAbsent(node.getLabel(), node) == null)
+        {
+            slots.put(node.getLabel(), vertices.size());
+            vertices.add(node.getLabel());
+            for (E w : node.getAdjacency()) index(node.getLabel(), w);
+            touch(node.getLabel());
+        }
+        assert(repOk(node.getLabel()));
     }
 
     //REQUIRES: nodeLabel ≠ null
@@ -93,48 +219,215 @@ public class HashGraph<E> implements Graph<E>, Iterable<E>
     //          If nodeLabel == null    throws IllegalArgumentException (unchecked).
     public void addNode(E nodeLabel) throws IllegalArgumentException
     { 
-        assert(repOk());
         if (nodeLabel == null) throw new IllegalArgumentException();
+        assert(repOk(nodeLabel));
         addNode(new HashNode<>(nodeLabel));
+        assert(repOk(nodeLabel));
+    }
+
+    //REQUIRES: labels ≠ null ∧ sources ≠ null ∧ targets ≠ null
+    //          labels[v] ≠ null ∀ 0 ≤ v < labels.length
+    //          sources.length == targets.length
+    //          0 ≤ sources[i], targets[i] < labels.length ∀ 0 ≤ i < sources.length
+    //MODIFIES: nodeMap, vertices, slots, incoming
+    //EFFECTS:  Adds a node for every label not already mapped inside nodeMap and
+    //          then the connection <labels[sources[i]], labels[targets[i]]> for
+    //          every i, as well as the opposite one if symmetric == true.
+    //          Connections are added in a single pass, with the adjacency of new
+    //          nodes pre-sized to their final degree.
+    //          If the requirements are not met
+    //                                  throws IllegalArgumentException (unchecked),
+    //                                  leaving this unchanged.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void addAll(E[] labels, int[] sources, int[] targets, boolean symmetric) throws IllegalArgumentException
+    {
+        if (labels == null || sources == null || targets == null) throw new IllegalArgumentException();
+        if (sources.length != targets.length) throw new IllegalArgumentException();
+        final int n = labels.length;
+        int[] degree = new int[n];
+        for (int i = 0; i < sources.length; i++)
+        {
+            if (sources[i] < 0 || sources[i] >= n || targets[i] < 0 || targets[i] >= n)
+                throw new IllegalArgumentException();
+            degree[sources[i]]++;
+            if (symmetric) degree[targets[i]]++;
+        }
+        for (E label : labels)
+            if (label == null) throw new IllegalArgumentException();
+
+        Node<E>[] nodes = new Node[n];
+        HashSet<E>[] in = new HashSet[n];
+        for (int v = 0; v < n; v++)
+        {
+            nodes[v] = nodeMap.get(labels[v]);
+            if (nodes[v] == null) addNode(nodes[v] = new HashNode<>(labels[v], degree[v]));
+        }
+
+        for (int i = 0; i < sources.length; i++)
+        {
+            connect(labels, nodes, in, sources[i], targets[i]);
+            if (symmetric) connect(labels, nodes, in, targets[i], sources[i]);
+        }
         assert(repOk());
     }
 
+    // Adds the connection <labels[u], labels[w]>, caching incoming sets inside in
+    private void connect(E[] labels, Node<E>[] nodes, HashSet<E>[] in, int u, int w)
+    {
+        if (labels[u].equals(labels[w])) return; // nodes ignore connections to themselves
+        nodes[u].addConnection(labels[w]);
+        touch(labels[u]);
+        if (in[w] == null)
+        {
+            in[w] = incoming.get(labels[w]);
+            if (in[w] == null) incoming.put(labels[w], in[w] = new HashSet<>());
+        }
+        in[w].add(labels[u]);
+    }
+
+    // Records that the mapping of k changed since the last snapshot, if any
+    private void touch(E k)
+    {
+        if (published != null) dirty.add(k);
+    }
+
+    // Records the connection <u, w> inside incoming
+    private void index(E u, E w)
+    {
+        HashSet<E> sources = incoming.get(w);
+        if (sources == null) incoming.put(w, sources = new HashSet<>());
+        sources.add(u);
+    }
+
+    // Forgets the connection <u, w> from incoming
+    private void unindex(E u, E w)
+    {
+        HashSet<E> sources = incoming.get(w);
+        if (sources != null && sources.remove(u) && sources.isEmpty()) incoming.remove(w);
+    }
+
     //REQUIRES: edge ِ≠ null
-    //MODIFIES: nodeMap
+    //MODIFIES: nodeMap, incoming
     //EFFECTS:  Creates a connection between two nodes, first retrieving
     //          the node from which the edge is coming and then appending 
     //          edge.getOutgoing() to its connections set.
     //          If either of the two nodes are not already mapped inside nodeMap,
     //          then they are first included inside the collection.
-    //          If connection already exists, then does nothing.
+    //          If connection already exists, then only sets its weight to
+    //          edge.getWeight().
     //          If edge == null         throws IllegalArgumentException (unchecked).
     public void addEdge(Edge<E> edge) throws IllegalArgumentException
     {
-        assert(repOk());
         if (edge == null) throw new IllegalArgumentException();
-        E out = edge.getOutgoing();
-        E in = edge.getIncoming();
+        addEdge(edge.getOutgoing(), edge.getIncoming(), edge.getWeight());
+    }
+
+    //REQUIRES: out ≠ null ∧ in ≠ null
+    //MODIFIES: nodeMap, vertices, slots, incoming
+    //EFFECTS:  Same as addEdge(new Edge<E>(out, in)), without the Edge.
+    //          If out == null ∨ in == null
+    //                                  throws IllegalArgumentException (unchecked).
+    public void addEdge(E out, E in) throws IllegalArgumentException
+    {
+        addEdge(out, in, Edge.DEFAULT_WEIGHT);
+    }
+
+    //REQUIRES: out ≠ null ∧ in ≠ null ∧ Edge.isWeight(weight)
+    //MODIFIES: nodeMap, vertices, slots, incoming
+    //EFFECTS:  Same as addEdge(new Edge<E>(out, in, weight)), without the Edge.
+    //          If out == null ∨ in == null ∨ ¬Edge.isWeight(weight)
+    //                                  throws IllegalArgumentException (unchecked).
+    public void addEdge(E out, E in, double weight) throws IllegalArgumentException
+    {
+        if (out == null || in == null || !Edge.isWeight(weight)) throw new IllegalArgumentException();
+        long start = metrics == null ? 0 : metrics.start();
+        assert(repOk(out) && repOk(in));
         if(!containsNode(out)) addNode(new HashNode<E>(out));
         if(!containsNode(in)) addNode(new HashNode<E>(in));
 
-        nodeMap.get(out).addConnection(in);
-        assert(repOk());
+        nodeMap.get(out).addConnection(in, weight);
+        if (!out.equals(in)) index(out, in); // nodes ignore connections to themselves
+        touch(out);
+        assert(repOk(out) && repOk(in));
+        if (start != 0) metrics.stop(GraphMetrics.Operation.ADD_EDGE, start);
+    }
+
+    //REQUIRES: u ≠ null ∧ w ≠ null
+    //MODIFIES: nodeMap, vertices, slots, incoming
+    //EFFECTS:  Adds both connections <u, w> and <w, u>, as addEdge(E, E) does.
+    //          If u == null ∨ w == null
+    //                                  throws IllegalArgumentException (unchecked).
+    public void addUndirectedEdge(E u, E w) throws IllegalArgumentException
+    {
+        addUndirectedEdge(u, w, Edge.DEFAULT_WEIGHT);
+    }
+
+    //REQUIRES: u ≠ null ∧ w ≠ null ∧ Edge.isWeight(weight)
+    //MODIFIES: nodeMap, vertices, slots, incoming
+    //EFFECTS:  Adds both connections <u, w> and <w, u> with the given weight, as
+    //          addEdge(E, E, double) does.
+    //          If u == null ∨ w == null ∨ ¬Edge.isWeight(weight)
+    //                                  throws IllegalArgumentException (unchecked).
+    public void addUndirectedEdge(E u, E w, double weight) throws IllegalArgumentException
+    {
+        if (u == null || w == null) throw new IllegalArgumentException();
+        addEdge(u, w, weight);
+        addEdge(w, u, weight);
+    }
+
+    //REQUIRES: out ≠ null ∧ in ≠ null
+    //          in ∈ getAdjacency(out)
+    //EFFECTS:  Returns the weight of the connection <out, in>.
+    //          If out == null ∨ in == null
+    //                                  throws IllegalArgumentException (unchecked).
+    //          If there is no such connection
+    //                                  throws NoSuchElementException (unchecked).
+    public double getWeight(E out, E in) throws NoSuchElementException, IllegalArgumentException
+    {
+        if (out == null || in == null) throw new IllegalArgumentException();
+        Node<E> node = nodeMap.get(out);
+        if (node == null) throw new NoSuchElementException();
+        return node.getWeight(in);
     }
 
     //REQUIRES: node ≠ null
     //          nodeMap.containsKey(nodeLabel) == true
-    //MODIFIES: nodeMap
-    //EFFECTS:  Removes the (only) mapping <nodeLabel, _> from nodeMap.
+    //MODIFIES: nodeMap, vertices, slots, incoming
+    //EFFECTS:  Removes the (only) mapping <nodeLabel, _> from nodeMap and
+    //          nodeLabel from vertices, moving the last label of vertices
+    //          into its position. Every connection towards nodeLabel is removed
+    //          as well, in O(in-degree + out-degree).
     //          If nodeMap.containsKey(nodeLabel) == false
     //                                  throws NoSuchElementException (unchecked).
     //          If nodeLabel == null    throws IllegalArgumentException (unchecked).
     public void removeNode(E nodeLabel) throws NoSuchElementException, IllegalArgumentException
     {
-        assert(repOk());
         if (nodeLabel == null) throw new IllegalArgumentException();
+        assert(repOk(nodeLabel));
         if (!nodeMap.containsKey(nodeLabel)) throw new NoSuchElementException();
-        nodeMap.remove(nodeLabel);
-        assert(repOk());
+        Node<E> removed = nodeMap.remove(nodeLabel);
+
+        HashSet<E> sources = incoming.remove(nodeLabel);
+        if (sources != null)
+        {
+            for (E u : sources)
+            {
+                Node<E> source = nodeMap.get(u);
+                if (source != null) source.removeConnection(nodeLabel);
+                touch(u);
+            }
+        }
+        touch(nodeLabel);
+        for (E w : removed.getAdjacency()) unindex(nodeLabel, w);
+
+        int slot = slots.remove(nodeLabel);
+        E last = vertices.remove(vertices.size() - 1);
+        if (slot < vertices.size())
+        {
+            vertices.set(slot, last);
+            slots.put(last, slot);
+        }
+        assert(repOk(nodeLabel) && (slot == vertices.size() || repOk(last)));
     }
 
     //REQUIRES: node ≠ null
@@ -146,17 +439,15 @@ public class HashGraph<E> implements Graph<E>, Iterable<E>
     //          If node == null         throws IllegalArgumentException.
     public void removeNode(Node<E> node) throws NoSuchElementException, IllegalArgumentException
     { 
-        assert(repOk());
         if (node == null) throw new IllegalArgumentException();
         removeNode(node.getLabel());
-        assert(repOk());
     }
 
 
     //REQUIRES: node ≠ null
     //          nodeMap.containsKey(edge.getOutgoing()) == true
     //          nodeMap.containsKey(edge.getIncoming()) == true
-    //MODIFIES: nodeMap
+    //MODIFIES: nodeMap, incoming
     //EFFECTS:  Removes edge.GetOutgoing() from the collections set of
     //          nodeMap.get(edge.getIncoming()).
     //          If edge == null         throws IllegalArgumentException (unchecked).
@@ -166,12 +457,14 @@ public class HashGraph<E> implements Graph<E>, Iterable<E>
     //                                  throws NoSuchElementException (unchecked).
     public void removeEdge(Edge<E> edge) throws NoSuchElementException, IllegalArgumentException
     {
-        assert(repOk());
         if (edge == null) throw new IllegalArgumentException();
+        assert(repOk(edge.getOutgoing()));
         Node<E> node = nodeMap.get(edge.getOutgoing());
         if (node == null) throw new NoSuchElementException();
         node.removeConnection(edge.getIncoming());
-        assert(repOk());
+        unindex(edge.getOutgoing(), edge.getIncoming());
+        touch(edge.getOutgoing());
+        assert(repOk(edge.getOutgoing()));
     }
 
 
@@ -181,9 +474,8 @@ public class HashGraph<E> implements Graph<E>, Iterable<E>
     //          If nodeLabel == null    throws IllegalArgumentException (unchecked). 
     public boolean containsNode(E nodeLabel) throws IllegalArgumentException
     {
-        assert(repOk());
         if (nodeLabel == null) throw new IllegalArgumentException();
-        assert(repOk());
+        assert(repOk(nodeLabel));
         return nodeMap.containsKey(nodeLabel);
     }
 
@@ -195,17 +487,85 @@ public class HashGraph<E> implements Graph<E>, Iterable<E>
 
     //REQUIRES: nodeLabel ≠ null
     //          nodeMap.containsKey(nodeLabel) == true          
-    //EFFECTS:  Returns a collection containing adjacency nodes of
-    //          nodeMap.get(nodeLabel)
+    //EFFECTS:  Returns a read-only view of the adjacency nodes of
+    //          nodeMap.get(nodeLabel), which reflects later changes
     //          If nodeLabel == null    throws IllegalArgumentException
     //          If nodeMap.containsKey(nodeLabel) == false  
     //                                  throws NoSuchElementException
     public Collection<E> getAdjacency(E nodeLabel)
     {
         if (nodeLabel == null) throw new IllegalArgumentException();
+        long start = metrics == null ? 0 : metrics.start();
         Node<E> node = nodeMap.get(nodeLabel);
         if (node == null) throw new NoSuchElementException();
-        return node.getAdjacency();
+        Collection<E> adjacency = node.getAdjacency();
+        if (start != 0) metrics.stop(GraphMetrics.Operation.GET_ADJACENCY, start);
+        return adjacency;
+    }
+
+    //REQUIRES: nodeLabel ≠ null ∧ action ≠ null
+    //          nodeMap.containsKey(nodeLabel) == true
+    //EFFECTS:  Invokes action on every adjacency node of nodeMap.get(nodeLabel).
+    //          action must not change this graph.
+    //          If nodeLabel == null ∨ action == null
+    //                                  throws IllegalArgumentException
+    //          If nodeMap.containsKey(nodeLabel) == false
+    //                                  throws NoSuchElementException
+    public void forEachNeighbor(E nodeLabel, Consumer<? super E> action)
+        throws NoSuchElementException, IllegalArgumentException
+    {
+        if (nodeLabel == null || action == null) throw new IllegalArgumentException();
+        Node<E> node = nodeMap.get(nodeLabel);
+        if (node == null) throw new NoSuchElementException();
+        for (E w : node.adjacency) action.accept(w);
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Times addEdge and getAdjacency into metrics from now on, or stops
+    //          timing them if metrics == null.
+    public void setMetrics(GraphMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //          nodeMap.containsKey(nodeLabel) == true
+    //EFFECTS:  Returns a read-only view of the labels of the nodes with a
+    //          connection towards nodeLabel.
+    //          If nodeLabel == null    throws IllegalArgumentException
+    //          If nodeMap.containsKey(nodeLabel) == false
+    //                                  throws NoSuchElementException
+    public Collection<E> getIncoming(E nodeLabel) throws NoSuchElementException, IllegalArgumentException
+    {
+        if (nodeLabel == null) throw new IllegalArgumentException();
+        if (!nodeMap.containsKey(nodeLabel)) throw new NoSuchElementException();
+        HashSet<E> sources = incoming.get(nodeLabel);
+        return sources == null ? Collections.<E>emptySet() : Collections.unmodifiableSet(sources);
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //          nodeMap.containsKey(nodeLabel) == true
+    //EFFECTS:  Returns the number of connections towards nodeLabel, in O(1).
+    //          If nodeLabel == null    throws IllegalArgumentException
+    //          If nodeMap.containsKey(nodeLabel) == false
+    //                                  throws NoSuchElementException
+    public int inDegree(E nodeLabel) throws NoSuchElementException, IllegalArgumentException
+    {
+        if (nodeLabel == null) throw new IllegalArgumentException();
+        if (!nodeMap.containsKey(nodeLabel)) throw new NoSuchElementException();
+        HashSet<E> sources = incoming.get(nodeLabel);
+        return sources == null ? 0 : sources.size();
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //          nodeMap.containsKey(nodeLabel) == true
+    //EFFECTS:  Returns the number of connections from nodeLabel, in O(1).
+    //          If nodeLabel == null    throws IllegalArgumentException
+    //          If nodeMap.containsKey(nodeLabel) == false
+    //                                  throws NoSuchElementException
+    public int outDegree(E nodeLabel) throws NoSuchElementException, IllegalArgumentException
+    {
+        return getAdjacency(nodeLabel).size();
     }
 
     //EFFECTS: Returns an iterator over the keys
@@ -214,6 +574,140 @@ public class HashGraph<E> implements Graph<E>, Iterable<E>
         return nodeMap.keySet().iterator();
     }
 
+    //REQUIRES: period ≥ 0
+    //MODIFIES: this
+    //EFFECTS:  When assertions are enabled, every operation checks the IR only for
+    //          the mappings it touches; this makes one out of period of those checks
+    //          verify the whole IR as well (0, the default, disables full checks).
+    //          If period < 0           throws IllegalArgumentException (unchecked).
+    public void setFullCheckPeriod(int period) throws IllegalArgumentException
+    {
+        if (period < 0) throw new IllegalArgumentException();
+        fullCheckPeriod = period;
+    }
+
+    //REQUIRES: samples ≥ 0
+    //MODIFIES: this
+    //EFFECTS:  When assertions are enabled, makes every check of the mappings touched
+    //          by an operation also verify samples mappings drawn at random
+    //          (0 by default).
+    //          If samples < 0          throws IllegalArgumentException (unchecked).
+    public void setCheckSamples(int samples) throws IllegalArgumentException
+    {
+        if (samples < 0) throw new IllegalArgumentException();
+        checkSamples = samples;
+    }
+
+    //REQUIRES: random ≠ null
+    //          nodeMap.size() > 0
+    //EFFECTS:  Returns a label drawn uniformly at random from nodeMap.keySet() in O(1).
+    //          If random == null       throws IllegalArgumentException (unchecked).
+    //          If nodeMap.size() == 0  throws NoSuchElementException (unchecked).
+    public E randomNode(SplittableRandom random) throws NoSuchElementException, IllegalArgumentException
+    {
+        if (random == null) throw new IllegalArgumentException();
+        if (vertices.isEmpty()) throw new NoSuchElementException();
+        return vertices.get(random.nextInt(vertices.size()));
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //EFFECTS:  Returns the position of nodeLabel inside vertices, -1 if it is not
+    //          mapped. Positions are dense and do not change while nodes are only
+    //          added; removing a node moves the last one into its position.
+    //          If nodeLabel == null    throws IllegalArgumentException (unchecked).
+    public int indexOf(E nodeLabel) throws IllegalArgumentException
+    {
+        if (nodeLabel == null) throw new IllegalArgumentException();
+        Integer slot = slots.get(nodeLabel);
+        return slot == null ? -1 : slot;
+    }
+
+    //REQUIRES: 0 ≤ position < size()
+    //EFFECTS:  Returns the label at the given position inside vertices.
+    //          If position is out of bounds
+    //                                  throws IndexOutOfBoundsException (unchecked).
+    public E labelOf(int position)
+    {
+        return vertices.get(position);
+    }
+
+    //EFFECTS:  Returns an immutable CompactGraph<E> holding the same nodes and
+    //          weighted connections as this, with every label interned to its
+    //          position inside vertices (see indexOf), so that ids stay the same
+    //          across snapshots as long as no node is removed.
+    //          Connections towards labels that are not mapped inside nodeMap
+    //          are dropped.
+    //          Subsequent modifications of this are not reflected in the result.
+    public CompactGraph<E> freeze()
+    {
+        assert(repOkSampled());
+        final int n = nodeMap.size();
+        Object[] labels = new Object[n];
+        HashMap<E, Integer> ids = new HashMap<>(n + n / 3 + 1);
+
+        int id = 0, edges = 0;
+        for (E k : vertices)
+        {
+            labels[id] = k;
+            ids.put(k, id++);
+            edges += nodeMap.get(k).getAdjacency().size();
+        }
+
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[edges];
+        double[] weights = null;    // allocated at the first weight ≠ Edge.DEFAULT_WEIGHT
+        int e = 0;
+        for (int v = 0; v < n; v++)
+        {
+            offsets[v] = e;
+            Node<E> node = nodeMap.get(labels[v]);
+            boolean weighted = !(node instanceof HashNode) || ((HashNode<E>) node).isWeighted();
+            for (E w : node.getAdjacency())
+            {
+                Integer t = ids.get(w);
+                if (t == null) continue;
+                double weight = weighted ? node.getWeight(w) : Edge.DEFAULT_WEIGHT;
+                if (weight != Edge.DEFAULT_WEIGHT && weights == null)
+                {
+                    weights = new double[edges];
+                    Arrays.fill(weights, 0, e, Edge.DEFAULT_WEIGHT);
+                }
+                if (weights != null) weights[e] = weight;
+                targets[e++] = t;
+            }
+        }
+        offsets[n] = e;
+        if (e < edges) targets = Arrays.copyOf(targets, e);
+        if (weights != null && e < edges) weights = Arrays.copyOf(weights, e);
+        return new CompactGraph<>(labels, ids, offsets, targets, weights);
+    }
+
+    //MODIFIES: published, dirty
+    //EFFECTS:  Returns an immutable GraphSnapshot<E> holding the same nodes and
+    //          connections as this, without their weights, which subsequent
+    //          modifications of this do not affect. The first call costs
+    //          O(|V| + |E'|); every later one only
+    //          copies the adjacency of the nodes changed since the previous call
+    //          (and of those with a connection towards a removed node), sharing
+    //          everything else with the previous snapshots.
+    //          The result can be read from any thread; this cannot, as usual.
+    public GraphSnapshot<E> snapshot()
+    {
+        if (published == null)
+        {
+            published = PersistentMap.empty();
+            dirty.addAll(nodeMap.keySet());
+        }
+        for (E k : dirty)
+        {
+            Node<E> node = nodeMap.get(k);
+            published = node == null ? published.remove(k) : published.put(k, node.getAdjacency().toArray());
+            assert(repOk(k));
+        }
+        dirty.clear();
+        return new GraphSnapshot<>(published, versions++);
+    }
+
     //EFFECTS: Returns a string representation of the current class instance
     @Override
     public String toString() 
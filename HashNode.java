@@ -5,6 +5,26 @@ import java.util.ArrayList;
 
 public class HashNode<E> extends Node<E>
 {
+    /* OVERVIEW:
+     * The class HashNode<E> represents a Node<E> whose connections are kept in
+     * a HashSet<E>, along with the weights that differ from Edge.DEFAULT_WEIGHT.
+     * Weights are stored without boxing, in an open addressing table with
+     * linear probing made of two parallel arrays (labels and weights) that is
+     * only allocated once such a weight is set, so unweighted nodes pay
+     * nothing. Removals shift the following entries of the probe sequence
+     * backwards, as in IntIntMap, and the table doubles when 2/3 full.
+     *
+     * IR:  - weightKeys == null ⇔ weights == null
+     *      - weightKeys ≠ null ⇒ weightKeys.length == weights.length is a power of 2
+     *        ∧ 3 * weighted ≤ 2 * weightKeys.length
+     *      - weightKeys[i] ≠ null ⇒ weightKeys[i] ∈ adjacency ∧
+     *        weights[i] ≠ Edge.DEFAULT_WEIGHT, reachable from its home slot
+     *      - weighted == |{ i : weightKeys[i] ≠ null }|
+     */
+
+    private Object[] weightKeys;    // null until a weight ≠ Edge.DEFAULT_WEIGHT is set
+    private double[] weights;
+    private int weighted;
 
     //Copies a generic collection containing values of type E into a new HashSet.
     //Note how it is not necessary to check for duplicates since we are using a Set.
@@ -27,6 +47,12 @@ public class HashNode<E> extends Node<E>
         super(new HashSet<>(), label);
     }
 
+    // Creates a node whose connections set can hold expectedDegree labels without rehashing
+    public HashNode(E label, int expectedDegree) throws IllegalArgumentException
+    {
+        super(new HashSet<>(Math.max(16, expectedDegree + expectedDegree / 3 + 1)), label);
+    }
+
     @Override
     public void addConnection(E nodeLabel) throws IllegalArgumentException
     {
@@ -35,11 +61,115 @@ public class HashNode<E> extends Node<E>
             adjacency.add(nodeLabel);
     }
 
+    // Adds the connection towards nodeLabel with the given weight, or sets the
+    // weight of the existing one; connections to itself are ignored
+    @Override
+    public void addConnection(E nodeLabel, double weight) throws IllegalArgumentException
+    {
+        if (nodeLabel == null || !Edge.isWeight(weight)) throw new IllegalArgumentException();
+        if (nodeLabel.equals(this.label)) return;
+        adjacency.add(nodeLabel);
+        if (weight != Edge.DEFAULT_WEIGHT) putWeight(nodeLabel, weight);
+        else if (weighted > 0) removeWeight(nodeLabel);
+    }
+
     @Override
     public void removeConnection(E nodeLabel) throws NoSuchElementException, IllegalArgumentException
     {
         if (nodeLabel == null) throw new IllegalArgumentException();
         if (!adjacency.remove(nodeLabel)) throw new NoSuchElementException();
+        if (weighted > 0) removeWeight(nodeLabel);
+    }
+
+    // Returns the weight of the connection towards nodeLabel, in O(1).
+    // Throws NoSuchElementException if there is no such connection.
+    @Override
+    public double getWeight(E nodeLabel) throws NoSuchElementException, IllegalArgumentException
+    {
+        if (nodeLabel == null) throw new IllegalArgumentException();
+        if (weighted > 0)
+        {
+            int i = find(nodeLabel);
+            if (weightKeys[i] != null) return weights[i];
+        }
+        if (!adjacency.contains(nodeLabel)) throw new NoSuchElementException();
+        return Edge.DEFAULT_WEIGHT;
+    }
+
+    // Returns true if some connection has a weight ≠ Edge.DEFAULT_WEIGHT
+    public boolean isWeighted()
+    {
+        return weighted > 0;
+    }
+
+    private static int home(Object key, int mask)
+    {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Returns the slot holding key, or the empty slot where it would be inserted
+    private int find(Object key)
+    {
+        int mask = weightKeys.length - 1, i = home(key, mask);
+        while (weightKeys[i] != null && !weightKeys[i].equals(key)) i = (i + 1) & mask;
+        return i;
+    }
+
+    private void putWeight(E key, double weight)
+    {
+        if (weightKeys == null)
+        {
+            weightKeys = new Object[8];
+            weights = new double[8];
+        }
+        int i = find(key);
+        if (weightKeys[i] == null)
+        {
+            weightKeys[i] = key;
+            if (3 * ++weighted > 2 * weightKeys.length)
+            {
+                weights[i] = weight;
+                growWeights();
+                return;
+            }
+        }
+        weights[i] = weight;
+    }
+
+    private void removeWeight(Object key)
+    {
+        int mask = weightKeys.length - 1, i = find(key);
+        if (weightKeys[i] == null) return;
+
+        // backward shift, see IntIntMap.remove
+        for (int j = (i + 1) & mask; weightKeys[j] != null; j = (j + 1) & mask)
+        {
+            int home = home(weightKeys[j], mask);
+            if (((j - home) & mask) >= ((j - i) & mask))
+            {
+                weightKeys[i] = weightKeys[j];
+                weights[i] = weights[j];
+                i = j;
+            }
+        }
+        weightKeys[i] = null;
+        weighted--;
+    }
+
+    private void growWeights()
+    {
+        Object[] oldKeys = weightKeys;
+        double[] oldWeights = weights;
+        weightKeys = new Object[2 * oldKeys.length];
+        weights = new double[2 * oldWeights.length];
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            if (oldKeys[j] == null) continue;
+            int i = find(oldKeys[j]);
+            weightKeys[i] = oldKeys[j];
+            weights[i] = oldWeights[j];
+        }
     }
 
     @Override
@@ -0,0 +1,161 @@
+import java.lang.IllegalArgumentException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+public class IncrementalDiameter<E>
+{
+    /* OVERVIEW:
+     * The class IncrementalDiameter<E> keeps BFS distance rows of a symmetric
+     * HashGraph<E> up to date while friendships are added, and maintains an
+     * estimate of its diameter from them.
+     * Rows are indexed by the positions of HashGraph<E>.indexOf, which do not
+     * change while nodes are only added. Adding the connections between u and
+     * w can only lower distances: if row[w] > row[u] + 1, a BFS starting from w
+     * with distance row[u] + 1 lowers every node it reaches through a shorter
+     * path than before, and stops at the nodes that do not improve, since no
+     * path through them can improve either. The cost is thus bounded by the
+     * degrees of the nodes whose distance actually changes.
+     * reset() computes the exact diameter D with FringeDiameter and tracks the
+     * rows of both endpoints of a longest shortest path; afterwards estimate()
+     * is the largest eccentricity among tracked sources, kept current through
+     * a histogram of each row. It is a lower bound on the diameter, equal to
+     * it right after reset(): new friendships may shorten other paths more, or
+     * join two components into a longer one not involving tracked sources.
+     * Removing nodes is not supported: reset() must be invoked again.
+     */
+
+    private final HashGraph<E> graph;
+    private int[][] rows;           // rows of tracked sources
+    private int[][] counts;         // counts[r][d] = nodes at distance d in rows[r]
+    private int[] eccentricities;   // eccentricities[r] = max { d : counts[r][d] > 0 }
+    private int[] queue;
+    private long repaired;          // entries lowered so far
+
+    //REQUIRES: graph ≠ null
+    //          graph is symmetric
+    //EFFECTS:  Creates an estimate tracking no source, to be initialized by reset().
+    //          If graph == null        throws IllegalArgumentException (unchecked).
+    public IncrementalDiameter(HashGraph<E> graph) throws IllegalArgumentException
+    {
+        if (graph == null) throw new IllegalArgumentException();
+        this.graph = graph;
+        rows = counts = new int[0][];
+        eccentricities = new int[0];
+        queue = new int[16];
+    }
+
+    //REQUIRES: snapshot == graph.freeze() or any IndexedGraph with the same ids
+    //MODIFIES: this
+    //EFFECTS:  Computes the exact diameter D of snapshot, tracks the rows of both
+    //          endpoints of a longest shortest path and returns D (-1 if empty).
+    public int reset(IndexedGraph<?> snapshot)
+    {
+        FringeDiameter diameter = new FringeDiameter(snapshot);
+        int d = diameter.compute(0);
+        rows = counts = new int[0][];
+        eccentricities = new int[0];
+        if (d < 0) return d;
+
+        BreadthFirstSearch search = new BreadthFirstSearch(snapshot);
+        int a = diameter.witness();
+        search.eccentricity(a);
+        int b = search.reached(search.lastVisited() - 1);
+        rows = new int[a == b ? 1 : 2][];
+        counts = new int[rows.length][];
+        eccentricities = new int[rows.length];
+        for (int r = 0; r < rows.length; r++)
+        {
+            rows[r] = new int[snapshot.size()];
+            eccentricities[r] = search.distances(r == 0 ? a : b, rows[r]);
+            counts[r] = new int[snapshot.size() + 1];
+            for (int v : rows[r]) if (v >= 0) counts[r][v]++;
+        }
+        return d;
+    }
+
+    //EFFECTS: Returns the largest eccentricity among the tracked sources (-1 if none)
+    public int estimate()
+    {
+        int estimate = -1;
+        for (int e : eccentricities) estimate = Math.max(estimate, e);
+        return estimate;
+    }
+
+    //EFFECTS: Returns the number of row entries lowered so far
+    public long repaired()
+    {
+        return repaired;
+    }
+
+    //REQUIRES: u ≠ null ∧ w ≠ null
+    //          both connections between u and w have just been added to graph
+    //MODIFIES: this
+    //EFFECTS:  Repairs the tracked rows and returns the updated estimate().
+    //          If u == null ∨ w == null
+    //                                  throws IllegalArgumentException (unchecked).
+    //          If u or w is not a node throws NoSuchElementException (unchecked).
+    public int friendshipAdded(E u, E w) throws NoSuchElementException, IllegalArgumentException
+    {
+        int x = graph.indexOf(u), y = graph.indexOf(w);
+        if (x == -1 || y == -1) throw new NoSuchElementException();
+        for (int r = 0; r < rows.length; r++)
+        {
+            if (rows[r].length < graph.size()) // nodes added since: unreachable so far
+            {
+                int old = rows[r].length;
+                rows[r] = Arrays.copyOf(rows[r], Math.max(graph.size(), 2 * old));
+                Arrays.fill(rows[r], old, rows[r].length, -1);
+                counts[r] = Arrays.copyOf(counts[r], rows[r].length + 1);
+            }
+            repair(rows[r], x, y, counts[r]);
+            while (eccentricities[r] > 0 && counts[r][eccentricities[r]] == 0) eccentricities[r]--;
+            for (int d = eccentricities[r] + 1; d < counts[r].length && counts[r][d] > 0; d++) eccentricities[r] = d;
+        }
+        return estimate();
+    }
+
+    //REQUIRES: row ≠ null ∧ row.length ≥ graph.size()
+    //          row holds the distances from some source before the connections
+    //          between the nodes at positions u and w were added
+    //MODIFIES: row, counts
+    //EFFECTS:  Lowers the entries of row that the new connections shorten, and
+    //          returns how many they are. If counts ≠ null, counts[d] is kept equal
+    //          to the number of entries of row equal to d.
+    public int repair(int[] row, int u, int w, int[] counts)
+    {
+        int start, from;
+        if (row[u] >= 0 && (row[w] < 0 || row[w] > row[u] + 1)) { start = w; from = u; }
+        else if (row[w] >= 0 && (row[u] < 0 || row[u] > row[w] + 1)) { start = u; from = w; }
+        else return 0;
+
+        int head = 0, tail = 0, lowered = 0;
+        lower(row, start, row[from] + 1, counts);
+        queue[tail++] = start;
+        while (head < tail)
+        {
+            int v = queue[head++];
+            lowered++;
+            int d = row[v] + 1;
+            for (E label : graph.getAdjacency(graph.labelOf(v)))
+            {
+                int x = graph.indexOf(label);
+                if (row[x] >= 0 && row[x] <= d) continue;
+                lower(row, x, d, counts);
+                if (tail == queue.length) queue = Arrays.copyOf(queue, 2 * tail);
+                queue[tail++] = x;
+            }
+        }
+        repaired += lowered;
+        return lowered;
+    }
+
+    private static void lower(int[] row, int v, int d, int[] counts)
+    {
+        if (counts != null)
+        {
+            if (row[v] >= 0) counts[row[v]]--;
+            counts[d]++;
+        }
+        row[v] = d;
+    }
+}
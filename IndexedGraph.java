@@ -0,0 +1,54 @@
+import java.lang.IllegalArgumentException;
+import java.util.function.IntConsumer;
+
+public interface IndexedGraph<E>
+{
+    /* OVERVIEW:
+     * The abstract data type IndexedGraph<E> represents a read-only view of a
+     * graph whose n nodes are identified by dense integer ids in [0, n), each
+     * one interned with a label of type E.
+     * Traversal algorithms (see BreadthFirstSearch) only need ids, degrees and
+     * neighbors, so they run unchanged on every implementation without touching
+     * labels or boxing ids.
+     */
+
+    //EFFECTS: Returns the number of nodes n
+    int size();
+
+    //REQUIRES: nodeLabel ≠ null
+    //EFFECTS:  Returns the id of nodeLabel, or -1 if there is no such node.
+    //          If nodeLabel == null    throws IllegalArgumentException (unchecked).
+    int indexOf(E nodeLabel) throws IllegalArgumentException;
+
+    //REQUIRES: 0 ≤ id < size()
+    //EFFECTS:  Returns the label interned with the given id.
+    E labelOf(int id);
+
+    //REQUIRES: 0 ≤ id < size()
+    //EFFECTS:  Returns the number of outgoing connections of the node with the given id.
+    int degree(int id);
+
+    //REQUIRES: 0 ≤ id < size()
+    //          0 ≤ i < degree(id)
+    //EFFECTS:  Returns the id of the i-th node adjacent to the node with the given id.
+    int neighbor(int id, int i);
+
+    //REQUIRES: 0 ≤ id < size()
+    //          0 ≤ i < degree(id)
+    //EFFECTS:  Returns the weight of the connection towards neighbor(id, i), finite
+    //          and ≥ 0; Edge.DEFAULT_WEIGHT unless the implementation stores weights.
+    default double weight(int id, int i)
+    {
+        return Edge.DEFAULT_WEIGHT;
+    }
+
+    //REQUIRES: 0 ≤ id < size() ∧ action ≠ null
+    //EFFECTS:  Invokes action on the id of every node adjacent to the node with
+    //          the given id, in the order of neighbor(id, i), without boxing.
+    //          If action == null       throws IllegalArgumentException (unchecked).
+    default void forEachNeighbor(int id, IntConsumer action) throws IllegalArgumentException
+    {
+        if (action == null) throw new IllegalArgumentException();
+        for (int i = 0, degree = degree(id); i < degree; i++) action.accept(neighbor(id, i));
+    }
+}
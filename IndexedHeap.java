@@ -0,0 +1,270 @@
+import java.lang.IllegalArgumentException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+public class IndexedHeap
+{
+    /* OVERVIEW:
+     * The class IndexedHeap represents a min priority queue of ids in
+     * [0, capacity) keyed by doubles, without boxing, as needed by Dijkstra's
+     * algorithm: every id is queued at most once and its key can be decreased
+     * in place. The heap is d-ary: every node has arity children, so sifting
+     * up costs O(log_d n) and sifting down O(d log_d n); with d = 4 the
+     * children of a node share a cache line or two and the heap is half as
+     * deep as a binary one, which pays off when decrease-key dominates.
+     * position maps every id to its slot inside heap, -1 if it is not queued,
+     * so that contains, key and decreaseKey cost O(1) before sifting.
+     * clear() only resets the ids still queued, so the heap can be reused
+     * by many searches at a cost proportional to their own size.
+     *
+     * AF:  { <heap[i], keys[heap[i]]> : 0 ≤ i < size }
+     *
+     * IR:  - arity ≥ 2
+     *      - position.length == keys.length ≥ heap.length ≥ size ≥ 0
+     *      - position[heap[i]] == i ∀ 0 ≤ i < size
+     *      - position[v] == -1 for every other v
+     *      - keys[heap[(i - 1) / arity]] ≤ keys[heap[i]] ∀ 0 < i < size
+     */
+
+    public static final int DEFAULT_ARITY = 4;
+
+    private final int arity;
+    private int[] heap;         // ids, in heap order
+    private int[] position;     // id -> slot inside heap, -1 if not queued
+    private double[] keys;      // id -> key, meaningful while queued
+    private int size;
+
+    //REQUIRES: capacity ≥ 0
+    //EFFECTS:  Creates an empty 4-ary heap for the ids [0, capacity).
+    //          If capacity < 0         throws IllegalArgumentException (unchecked).
+    public IndexedHeap(int capacity) throws IllegalArgumentException
+    {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    //REQUIRES: capacity ≥ 0 ∧ arity ≥ 2
+    //EFFECTS:  Creates an empty arity-ary heap for the ids [0, capacity).
+    //          If capacity < 0 ∨ arity < 2
+    //                                  throws IllegalArgumentException (unchecked).
+    public IndexedHeap(int capacity, int arity) throws IllegalArgumentException
+    {
+        if (capacity < 0 || arity < 2) throw new IllegalArgumentException();
+        this.arity = arity;
+        heap = new int[capacity];
+        position = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    // used to verify pre/post condition via assertions, in O(capacity)
+    boolean repOk()
+    {
+        if (arity < 2 || position.length != keys.length || heap.length > keys.length) return false;
+        if (size < 0 || size > heap.length) return false;
+        int queued = 0;
+        for (int v = 0; v < position.length; v++)
+        {
+            if (position[v] == -1) continue;
+            if (position[v] < 0 || position[v] >= size || heap[position[v]] != v) return false;
+            queued++;
+        }
+        for (int i = 1; i < size; i++)
+            if (keys[heap[(i - 1) / arity]] > keys[heap[i]]) return false;
+        return queued == size;
+    }
+
+    //EFFECTS: Returns the number of ids the heap can hold, i.e. ids are in [0, capacity())
+    public int capacity()
+    {
+        return position.length;
+    }
+
+    //REQUIRES: capacity ≥ capacity()
+    //MODIFIES: this
+    //EFFECTS:  Lets the heap hold the ids [0, capacity), keeping its contents.
+    //          If capacity < capacity()
+    //                                  throws IllegalArgumentException (unchecked).
+    public void grow(int capacity) throws IllegalArgumentException
+    {
+        if (capacity < position.length) throw new IllegalArgumentException();
+        int old = position.length;
+        heap = Arrays.copyOf(heap, capacity);
+        position = Arrays.copyOf(position, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        Arrays.fill(position, old, capacity, -1);
+    }
+
+    //EFFECTS: Returns the number of queued ids
+    public int size()
+    {
+        return size;
+    }
+
+    //EFFECTS: Returns true if no id is queued
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    //REQUIRES: 0 ≤ id < capacity()
+    //EFFECTS:  Returns true if id is queued.
+    public boolean contains(int id)
+    {
+        return position[id] != -1;
+    }
+
+    //REQUIRES: contains(id)
+    //EFFECTS:  Returns the key of id.
+    //          If id is not queued     throws NoSuchElementException (unchecked).
+    public double key(int id) throws NoSuchElementException
+    {
+        if (position[id] == -1) throw new NoSuchElementException();
+        return keys[id];
+    }
+
+    //REQUIRES: 0 ≤ id < capacity() ∧ ¬contains(id) ∧ key is not NaN
+    //MODIFIES: this
+    //EFFECTS:  Queues id with the given key, in O(log_d size).
+    //          If id is already queued ∨ key is NaN
+    //                                  throws IllegalArgumentException (unchecked).
+    public void insert(int id, double key) throws IllegalArgumentException
+    {
+        if (position[id] != -1 || Double.isNaN(key)) throw new IllegalArgumentException();
+        keys[id] = key;
+        heap[size] = id;
+        position[id] = size;
+        up(size++);
+    }
+
+    //REQUIRES: contains(id) ∧ key ≤ key(id)
+    //MODIFIES: this
+    //EFFECTS:  Lowers the key of id to key, in O(log_d size).
+    //          If id is not queued     throws NoSuchElementException (unchecked).
+    //          If key > key(id) ∨ key is NaN
+    //                                  throws IllegalArgumentException (unchecked).
+    public void decreaseKey(int id, double key) throws NoSuchElementException, IllegalArgumentException
+    {
+        if (position[id] == -1) throw new NoSuchElementException();
+        if (!(key <= keys[id])) throw new IllegalArgumentException();
+        keys[id] = key;
+        up(position[id]);
+    }
+
+    //REQUIRES: 0 ≤ id < capacity() ∧ key is not NaN
+    //MODIFIES: this
+    //EFFECTS:  Queues id with the given key if it is not queued, or lowers its key
+    //          to key if that is smaller; returns true if the heap changed.
+    //          If key is NaN           throws IllegalArgumentException (unchecked).
+    public boolean push(int id, double key) throws IllegalArgumentException
+    {
+        if (position[id] == -1)
+        {
+            insert(id, key);
+            return true;
+        }
+        if (!(key < keys[id]))
+        {
+            if (Double.isNaN(key)) throw new IllegalArgumentException();
+            return false;
+        }
+        keys[id] = key;
+        up(position[id]);
+        return true;
+    }
+
+    //REQUIRES: ¬isEmpty()
+    //EFFECTS:  Returns the id with the smallest key, without removing it.
+    //          If the heap is empty    throws NoSuchElementException (unchecked).
+    public int peek() throws NoSuchElementException
+    {
+        if (size == 0) throw new NoSuchElementException();
+        return heap[0];
+    }
+
+    //EFFECTS: Returns the smallest key, +∞ if the heap is empty
+    public double peekKey()
+    {
+        return size == 0 ? Double.POSITIVE_INFINITY : keys[heap[0]];
+    }
+
+    //REQUIRES: ¬isEmpty()
+    //MODIFIES: this
+    //EFFECTS:  Removes and returns the id with the smallest key (its key stays
+    //          readable through keyOf until it is queued again), in O(d log_d size).
+    //          If the heap is empty    throws NoSuchElementException (unchecked).
+    public int poll() throws NoSuchElementException
+    {
+        if (size == 0) throw new NoSuchElementException();
+        int min = heap[0];
+        position[min] = -1;
+        if (--size > 0)
+        {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            down(0);
+        }
+        return min;
+    }
+
+    //REQUIRES: 0 ≤ id < capacity()
+    //EFFECTS:  Returns the last key id was queued with, whether or not it is still
+    //          queued (meaningless if it never was).
+    public double keyOf(int id)
+    {
+        return keys[id];
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Removes every queued id, in O(size()).
+    public void clear()
+    {
+        for (int i = 0; i < size; i++) position[heap[i]] = -1;
+        size = 0;
+    }
+
+    // Moves the id at slot i towards the root while its parent has a larger key
+    private void up(int i)
+    {
+        int id = heap[i];
+        double key = keys[id];
+        while (i > 0)
+        {
+            int parent = (i - 1) / arity;
+            if (keys[heap[parent]] <= key) break;
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        position[id] = i;
+    }
+
+    // Moves the id at slot i towards the leaves while a child has a smaller key
+    private void down(int i)
+    {
+        int id = heap[i];
+        double key = keys[id];
+        while (true)
+        {
+            int first = arity * i + 1;
+            if (first >= size) break;
+            int last = Math.min(first + arity, size), min = first;
+            double minKey = keys[heap[first]];
+            for (int c = first + 1; c < last; c++)
+            {
+                double k = keys[heap[c]];
+                if (k < minKey)
+                {
+                    min = c;
+                    minKey = k;
+                }
+            }
+            if (minKey >= key) break;
+            heap[i] = heap[min];
+            position[heap[i]] = i;
+            i = min;
+        }
+        heap[i] = id;
+        position[id] = i;
+    }
+}
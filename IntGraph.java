@@ -0,0 +1,437 @@
+import java.lang.IllegalArgumentException;
+import java.lang.UnsupportedOperationException;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class IntGraph implements IntKeyedGraph, IndexedGraph<Integer>
+{
+    /* OVERVIEW:
+     * The class IntGraph represents a mutable IntKeyedGraph stored without any
+     * per node or per edge object besides two int[] per node.
+     * Every label is mapped by an IntIntMap to a dense slot in [0, size()):
+     * labels[v] is the label of slot v, out[v][0 .. outSize[v]) the slots it
+     * has a connection towards and in[v][0 .. inSize[v]) the slots with a
+     * connection towards it. Lists grow by doubling and are kept unordered, so
+     * a connection costs 8 bytes (plus the unused capacity, see trimToSize()),
+     * and membership is checked by scanning the shorter of the two lists.
+     * Removing a node moves the node in the last slot into the freed one.
+     * Since slots are dense, IntGraph is also an IndexedGraph<Integer> whose ids
+     * are the slots, so BreadthFirstSearch, FringeDiameter and ParallelDiameter
+     * run on it directly; asGraph() adapts it to Graph<Integer> for code written
+     * against labels. Ids are only stable while the graph is not modified.
+     *
+     * AF:  { <labels[v], { labels[w] : w ∈ out[v][0 .. outSize[v]) }> : 0 ≤ v < n }
+     *
+     * IR:  - 0 ≤ n ≤ labels.length == out.length == in.length == outSize.length == inSize.length
+     *      - slots.size() == n ∧ slots.get(labels[v]) == v ∀ 0 ≤ v < n
+     *      - out[v][0 .. outSize[v]) holds distinct slots in [0, n) \ {v}, likewise in[v]
+     *      - w ∈ out[v][0 .. outSize[v]) ⇔ v ∈ in[w][0 .. inSize[w])
+     */
+
+    private static final int[] EMPTY = new int[0];
+
+    private final IntIntMap slots;  // label -> slot
+    private int[] labels;           // slot -> label
+    private int[][] out, in;
+    private int[] outSize, inSize;
+    private int n;
+
+    // used to verify pre/post condition via assertions, in O(Σ degree²)
+    private boolean repOk()
+    {
+        if (slots.size() != n) return false;
+        for (int v = 0; v < n; v++)
+        {
+            if (!repOk(v)) return false;
+            for (int i = 0; i < outSize[v]; i++)
+            {
+                int w = out[v][i];
+                if (indexOf(in[w], inSize[w], v) == -1 || indexOf(out[v], i, w) != -1) return false;
+            }
+            for (int i = 0; i < inSize[v]; i++)
+            {
+                int u = in[v][i];
+                if (indexOf(out[u], outSize[u], v) == -1 || indexOf(in[v], i, u) != -1) return false;
+            }
+        }
+        return true;
+    }
+
+    // Verifies the mapping of slot v and the bounds of its lists, in O(degree)
+    private boolean repOk(int v)
+    {
+        if (v < 0 || v >= n || slots.get(labels[v]) != v) return false;
+        if (outSize[v] > out[v].length || inSize[v] > in[v].length) return false;
+        for (int i = 0; i < outSize[v]; i++)
+            if (out[v][i] < 0 || out[v][i] >= n || out[v][i] == v) return false;
+        for (int i = 0; i < inSize[v]; i++)
+            if (in[v][i] < 0 || in[v][i] >= n || in[v][i] == v) return false;
+        return true;
+    }
+
+    // used to verify pre/post condition via assertions after touching the node
+    // labelled nodeLabel, if it is still a node
+    private boolean isOk(int nodeLabel)
+    {
+        int v = slots.get(nodeLabel);
+        return slots.size() == n && (v == IntIntMap.MISSING || repOk(v));
+    }
+
+    //EFFECTS: Creates an empty graph
+    public IntGraph()
+    {
+        this(16);
+    }
+
+    //REQUIRES: expectedSize ≥ 0
+    //EFFECTS:  Creates an empty graph that can hold expectedSize nodes without
+    //          being resized.
+    //          If expectedSize < 0     throws IllegalArgumentException (unchecked).
+    public IntGraph(int expectedSize) throws IllegalArgumentException
+    {
+        if (expectedSize < 0) throw new IllegalArgumentException();
+        slots = new IntIntMap(expectedSize);
+        labels = new int[expectedSize];
+        out = new int[expectedSize][];
+        in = new int[expectedSize][];
+        outSize = new int[expectedSize];
+        inSize = new int[expectedSize];
+        n = 0;
+        assert(repOk());
+    }
+
+    // Returns the position of value inside list[0 .. size), -1 if absent
+    private static int indexOf(int[] list, int size, int value)
+    {
+        for (int i = 0; i < size; i++)
+            if (list[i] == value) return i;
+        return -1;
+    }
+
+    // Returns list, or a copy twice as large if it is full
+    private static int[] ensure(int[] list, int size)
+    {
+        return size < list.length ? list : Arrays.copyOf(list, Math.max(4, 2 * size));
+    }
+
+    // Returns the slot of nodeLabel, adding it if needed
+    private int slot(int nodeLabel)
+    {
+        int v = slots.get(nodeLabel);
+        if (v != IntIntMap.MISSING) return v;
+        if (n == labels.length)
+        {
+            int capacity = Math.max(16, 2 * n);
+            labels = Arrays.copyOf(labels, capacity);
+            out = Arrays.copyOf(out, capacity);
+            in = Arrays.copyOf(in, capacity);
+            outSize = Arrays.copyOf(outSize, capacity);
+            inSize = Arrays.copyOf(inSize, capacity);
+        }
+        labels[n] = nodeLabel;
+        out[n] = in[n] = EMPTY;
+        outSize[n] = inSize[n] = 0;
+        slots.put(nodeLabel, n);
+        return n++;
+    }
+
+    // Returns the slot of nodeLabel, which must be mapped
+    private int existing(int nodeLabel) throws NoSuchElementException
+    {
+        int v = slots.get(nodeLabel);
+        if (v == IntIntMap.MISSING) throw new NoSuchElementException();
+        return v;
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Adds a node labelled nodeLabel, if it is not there already.
+    public void addNode(int nodeLabel)
+    {
+        slot(nodeLabel);
+        assert(isOk(nodeLabel));
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Adds the connection <outLabel, inLabel>, first adding either node
+    //          if it is not there, in O(min(outDegree(outLabel), inDegree(inLabel))).
+    //          If the connection already exists, or outLabel == inLabel, only the
+    //          nodes are added.
+    public void addEdge(int outLabel, int inLabel)
+    {
+        int u = slot(outLabel), w = slot(inLabel);
+        if (u != w && !connected(u, w))
+        {
+            out[u] = ensure(out[u], outSize[u]);
+            out[u][outSize[u]++] = w;
+            in[w] = ensure(in[w], inSize[w]);
+            in[w][inSize[w]++] = u;
+        }
+        assert(isOk(outLabel) && isOk(inLabel));
+    }
+
+    // Returns true if there is a connection from slot u to slot w
+    private boolean connected(int u, int w)
+    {
+        return outSize[u] <= inSize[w] ? indexOf(out[u], outSize[u], w) != -1
+                                       : indexOf(in[w], inSize[w], u) != -1;
+    }
+
+    // Removes value from list[0 .. size), moving the last element in its place
+    private static void unlink(int[] list, int size, int value)
+    {
+        int i = indexOf(list, size, value);
+        list[i] = list[size - 1];
+    }
+
+    // Replaces value with replacement inside list[0 .. size)
+    private static void relink(int[] list, int size, int value, int replacement)
+    {
+        list[indexOf(list, size, value)] = replacement;
+    }
+
+    //REQUIRES: nodeLabel is a node
+    //MODIFIES: this
+    //EFFECTS:  Removes nodeLabel along with its incoming and outgoing connections,
+    //          then moves the node of the last slot into the freed one.
+    //          If nodeLabel is not a node
+    //                                  throws NoSuchElementException (unchecked).
+    public void removeNode(int nodeLabel) throws NoSuchElementException
+    {
+        int v = existing(nodeLabel);
+        for (int i = 0; i < outSize[v]; i++)
+        {
+            int w = out[v][i];
+            unlink(in[w], inSize[w]--, v);
+        }
+        for (int i = 0; i < inSize[v]; i++)
+        {
+            int u = in[v][i];
+            unlink(out[u], outSize[u]--, v);
+        }
+        slots.remove(nodeLabel);
+
+        int last = --n;
+        if (v != last)
+        {
+            labels[v] = labels[last];
+            out[v] = out[last];
+            in[v] = in[last];
+            outSize[v] = outSize[last];
+            inSize[v] = inSize[last];
+            slots.put(labels[v], v);
+            for (int i = 0; i < outSize[v]; i++) relink(in[out[v][i]], inSize[out[v][i]], last, v);
+            for (int i = 0; i < inSize[v]; i++) relink(out[in[v][i]], outSize[in[v][i]], last, v);
+        }
+        out[last] = in[last] = null;
+        assert(isOk(nodeLabel) && (v == last || repOk(v)));
+    }
+
+    //REQUIRES: <outLabel, inLabel> is a connection
+    //MODIFIES: this
+    //EFFECTS:  Removes the connection <outLabel, inLabel>.
+    //          If there is no such connection
+    //                                  throws NoSuchElementException (unchecked).
+    public void removeEdge(int outLabel, int inLabel) throws NoSuchElementException
+    {
+        int u = existing(outLabel), w = existing(inLabel);
+        if (u == w || !connected(u, w)) throw new NoSuchElementException();
+        unlink(out[u], outSize[u]--, w);
+        unlink(in[w], inSize[w]--, u);
+        assert(isOk(outLabel) && isOk(inLabel));
+    }
+
+    //EFFECTS: Returns true if nodeLabel is a node
+    public boolean containsNode(int nodeLabel)
+    {
+        return slots.containsKey(nodeLabel);
+    }
+
+    //EFFECTS: Returns the number of nodes
+    public int size()
+    {
+        return n;
+    }
+
+    //REQUIRES: nodeLabel is a node
+    //EFFECTS:  Returns a new array with the labels nodeLabel has a connection towards.
+    //          If nodeLabel is not a node
+    //                                  throws NoSuchElementException (unchecked).
+    public int[] getAdjacency(int nodeLabel) throws NoSuchElementException
+    {
+        int v = existing(nodeLabel);
+        int[] adjacency = new int[outSize[v]];
+        for (int i = 0; i < adjacency.length; i++) adjacency[i] = labels[out[v][i]];
+        return adjacency;
+    }
+
+    //REQUIRES: nodeLabel is a node
+    //EFFECTS:  Returns the number of connections from nodeLabel, in O(1).
+    //          If nodeLabel is not a node
+    //                                  throws NoSuchElementException (unchecked).
+    public int outDegree(int nodeLabel) throws NoSuchElementException
+    {
+        return outSize[existing(nodeLabel)];
+    }
+
+    //REQUIRES: nodeLabel is a node
+    //EFFECTS:  Returns the number of connections towards nodeLabel, in O(1).
+    //          If nodeLabel is not a node
+    //                                  throws NoSuchElementException (unchecked).
+    public int inDegree(int nodeLabel) throws NoSuchElementException
+    {
+        return inSize[existing(nodeLabel)];
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //EFFECTS:  Returns the id (slot) of nodeLabel, or -1 if it is not a node.
+    //          If nodeLabel == null    throws IllegalArgumentException (unchecked).
+    public int indexOf(Integer nodeLabel) throws IllegalArgumentException
+    {
+        if (nodeLabel == null) throw new IllegalArgumentException();
+        return slots.get(nodeLabel);
+    }
+
+    //REQUIRES: 0 ≤ id < size()
+    //EFFECTS:  Returns the label of the node with the given id.
+    public Integer labelOf(int id)
+    {
+        return labels[id];
+    }
+
+    //REQUIRES: 0 ≤ id < size()
+    //EFFECTS:  Returns the number of outgoing connections of the node with the given id.
+    public int degree(int id)
+    {
+        return outSize[id];
+    }
+
+    //REQUIRES: 0 ≤ id < size()
+    //          0 ≤ i < degree(id)
+    //EFFECTS:  Returns the id of the i-th node adjacent to the node with the given id.
+    public int neighbor(int id, int i)
+    {
+        return out[id][i];
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Shrinks every list to its size, releasing unused capacity.
+    public void trimToSize()
+    {
+        for (int v = 0; v < n; v++)
+        {
+            out[v] = outSize[v] == 0 ? EMPTY : Arrays.copyOf(out[v], outSize[v]);
+            in[v] = inSize[v] == 0 ? EMPTY : Arrays.copyOf(in[v], inSize[v]);
+        }
+        labels = Arrays.copyOf(labels, n);
+        out = Arrays.copyOf(out, n);
+        in = Arrays.copyOf(in, n);
+        outSize = Arrays.copyOf(outSize, n);
+        inSize = Arrays.copyOf(inSize, n);
+        assert(repOk());
+    }
+
+    //EFFECTS:  Returns a Graph<Integer> view of this: changes made through either
+    //          are visible in the other. Labels and adjacency are boxed on the fly.
+    public Graph<Integer> asGraph()
+    {
+        return new Graph<Integer>()
+        {
+            public void addNode(Node<Integer> node)
+            {
+                if (node == null) throw new IllegalArgumentException();
+                IntGraph.this.addNode(node.getLabel());
+                for (Integer w : node.getAdjacency()) IntGraph.this.addEdge(node.getLabel(), w);
+            }
+
+            public void addNode(Integer nodeLabel)
+            {
+                if (nodeLabel == null) throw new IllegalArgumentException();
+                IntGraph.this.addNode(nodeLabel.intValue());
+            }
+
+            public void addEdge(Edge<Integer> edge)
+            {
+                if (edge == null) throw new IllegalArgumentException();
+                IntGraph.this.addEdge(edge.getOutgoing(), edge.getIncoming());
+            }
+
+            public void removeNode(Node<Integer> node)
+            {
+                if (node == null) throw new IllegalArgumentException();
+                IntGraph.this.removeNode(node.getLabel().intValue());
+            }
+
+            public void removeNode(Integer nodeLabel)
+            {
+                if (nodeLabel == null) throw new IllegalArgumentException();
+                IntGraph.this.removeNode(nodeLabel.intValue());
+            }
+
+            public void removeEdge(Edge<Integer> edge)
+            {
+                if (edge == null) throw new IllegalArgumentException();
+                IntGraph.this.removeEdge(edge.getOutgoing(), edge.getIncoming());
+            }
+
+            public boolean containsNode(Integer nodeLabel)
+            {
+                if (nodeLabel == null) throw new IllegalArgumentException();
+                return IntGraph.this.containsNode(nodeLabel.intValue());
+            }
+
+            public int size()
+            {
+                return n;
+            }
+
+            public Collection<Integer> getAdjacency(Integer nodeLabel)
+            {
+                if (nodeLabel == null) throw new IllegalArgumentException();
+                final int v = existing(nodeLabel);
+                return new AbstractCollection<Integer>()
+                {
+                    public int size() { return outSize[v]; }
+
+                    public Iterator<Integer> iterator()
+                    {
+                        return new Iterator<Integer>()
+                        {
+                            private int next = 0;
+
+                            public boolean hasNext() { return next < outSize[v]; }
+
+                            public Integer next()
+                            {
+                                if (next >= outSize[v]) throw new NoSuchElementException();
+                                return labels[out[v][next++]];
+                            }
+
+                            public void remove() { throw new UnsupportedOperationException(); }
+                        };
+                    }
+                };
+            }
+
+            @Override
+            public String toString()
+            {
+                return IntGraph.this.toString();
+            }
+        };
+    }
+
+    //EFFECTS: Returns a string representation of the current class instance
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int v = 0; v < n; v++)
+        {
+            sb.append(labels[v] + ": " + Arrays.toString(getAdjacency(labels[v])) + "\n");
+        }
+        return sb.toString();
+    }
+}
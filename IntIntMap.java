@@ -0,0 +1,145 @@
+import java.lang.IllegalArgumentException;
+import java.util.Arrays;
+
+public class IntIntMap
+{
+    /* OVERVIEW:
+     * The class IntIntMap represents a map from int keys to non negative int
+     * values, without boxing: keys and values are stored in two parallel
+     * arrays forming an open addressing hash table with linear probing.
+     * Removals shift the following entries of the probe sequence backwards,
+     * so no tombstone is ever left behind. The table doubles whenever it gets
+     * more than 2/3 full.
+     *
+     * AF:  { <keys[i], values[i] - 1> : values[i] ≠ 0 }
+     *
+     * IR:  - keys.length == values.length is a power of 2
+     *      - size == |{ i : values[i] ≠ 0 }| ∧ 3 * size ≤ 2 * keys.length
+     *      - every key occurs at most once and is reachable from its home slot
+     *        through non empty slots only
+     */
+
+    // Returned by get(int) for keys that are not mapped
+    public static final int MISSING = -1;
+
+    private int[] keys;
+    private int[] values;   // value + 1, 0 for empty slots
+    private int size;
+
+    //EFFECTS: Creates an empty map
+    public IntIntMap()
+    {
+        this(16);
+    }
+
+    //REQUIRES: expectedSize ≥ 0
+    //EFFECTS:  Creates an empty map that can hold expectedSize keys without growing.
+    //          If expectedSize < 0     throws IllegalArgumentException (unchecked).
+    public IntIntMap(int expectedSize) throws IllegalArgumentException
+    {
+        if (expectedSize < 0) throw new IllegalArgumentException();
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize + expectedSize / 2) - 1) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    private static int mix(int key)
+    {
+        int h = key * 0x9E3779B9; // Fibonacci hashing spreads sequential ids
+        return h ^ (h >>> 16);
+    }
+
+    // Returns the slot holding key, or the empty slot where it would be inserted
+    private int find(int key)
+    {
+        int mask = keys.length - 1, i = mix(key) & mask;
+        while (values[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    //EFFECTS: Returns the number of keys
+    public int size()
+    {
+        return size;
+    }
+
+    //EFFECTS: Returns the value mapped to key, MISSING if there is none
+    public int get(int key)
+    {
+        return values[find(key)] - 1;
+    }
+
+    //EFFECTS: Returns true if key is mapped
+    public boolean containsKey(int key)
+    {
+        return values[find(key)] != 0;
+    }
+
+    //REQUIRES: value ≥ 0
+    //MODIFIES: this
+    //EFFECTS:  Maps key to value, returning the previous value or MISSING.
+    //          If value < 0            throws IllegalArgumentException (unchecked).
+    public int put(int key, int value) throws IllegalArgumentException
+    {
+        if (value < 0) throw new IllegalArgumentException();
+        int i = find(key);
+        int previous = values[i] - 1;
+        keys[i] = key;
+        values[i] = value + 1;
+        if (previous == MISSING && 3 * ++size > 2 * keys.length) grow();
+        return previous;
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Removes the mapping of key, returning its value or MISSING.
+    public int remove(int key)
+    {
+        int mask = keys.length - 1, i = find(key);
+        int previous = values[i] - 1;
+        if (previous == MISSING) return MISSING;
+
+        // backward shift: moves back every following entry whose home slot does
+        // not lie cyclically in (i, j], so that probe sequences stay unbroken
+        for (int j = (i + 1) & mask; values[j] != 0; j = (j + 1) & mask)
+        {
+            int home = mix(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask))
+            {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        values[i] = 0;
+        size--;
+        return previous;
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Removes every mapping
+    public void clear()
+    {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    private void grow()
+    {
+        int[] oldKeys = keys, oldValues = values;
+        keys = new int[2 * oldKeys.length];
+        values = new int[2 * oldValues.length];
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            if (oldValues[j] == 0) continue;
+            int i = find(oldKeys[j]);
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    //EFFECTS: Returns the number of bytes used by the table, headers excluded
+    public long footprint()
+    {
+        return 8L * keys.length;
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.NoSuchElementException;
+
+public interface IntKeyedGraph
+{
+    /* OVERVIEW:
+     * The abstract data type IntKeyedGraph represents the counterpart of Graph<E>
+     * for graphs whose nodes are labelled by plain int values, e.g. numeric user
+     * ids: labels and connections are passed as int, so that no Integer nor
+     * Edge<Integer> has to be allocated. As in Graph<E>, every node holds the
+     * set of labels it has an outgoing connection towards, and nodes cannot
+     * contain connections to themselves.
+     */
+
+    //MODIFIES: V
+    //EFFECTS:  Adds a node labelled nodeLabel to V, if it is not there already.
+    void addNode(int nodeLabel);
+
+    //MODIFIES: V, E'
+    //EFFECTS:  Adds the connection <outLabel, inLabel> to E', first adding either
+    //          node to V if it is not there. If the connection already exists,
+    //          or outLabel == inLabel, only the nodes are added.
+    void addEdge(int outLabel, int inLabel);
+
+    //REQUIRES: nodeLabel ∈ V
+    //MODIFIES: V, E'
+    //EFFECTS:  Removes nodeLabel from V along with all its incoming and outgoing
+    //          connections.
+    //          If nodeLabel \not ∈ V   throws NoSuchElementException (unchecked).
+    void removeNode(int nodeLabel) throws NoSuchElementException;
+
+    //REQUIRES: <outLabel, inLabel> ∈ E'
+    //MODIFIES: E'
+    //EFFECTS:  Removes the connection <outLabel, inLabel> from E'.
+    //          If <outLabel, inLabel> \not ∈ E'
+    //                                  throws NoSuchElementException (unchecked).
+    void removeEdge(int outLabel, int inLabel) throws NoSuchElementException;
+
+    //EFFECTS: Returns true if nodeLabel ∈ V, false otherwise.
+    boolean containsNode(int nodeLabel);
+
+    //EFFECTS: Returns |V|
+    int size();
+
+    //REQUIRES: nodeLabel ∈ V
+    //EFFECTS:  Returns a new array holding the labels nodeLabel has a connection
+    //          towards, in no particular order.
+    //          If nodeLabel \not ∈ V   throws NoSuchElementException (unchecked).
+    int[] getAdjacency(int nodeLabel) throws NoSuchElementException;
+
+    //REQUIRES: nodeLabel ∈ V
+    //EFFECTS:  Returns the number of connections from nodeLabel.
+    //          If nodeLabel \not ∈ V   throws NoSuchElementException (unchecked).
+    int outDegree(int nodeLabel) throws NoSuchElementException;
+}
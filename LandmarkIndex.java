@@ -0,0 +1,271 @@
+import java.lang.IllegalArgumentException;
+import java.util.Arrays;
+
+public class LandmarkIndex
+{
+    /* OVERVIEW:
+     * The class LandmarkIndex answers repeated weighted shortest path queries
+     * on a symmetric IndexedGraph with symmetric weights through A* search
+     * guided by landmarks (ALT: A*, Landmarks and the Triangle inequality, by
+     * Goldberg and Harrelson).
+     * A few landmarks are chosen once, and their distances to every node are
+     * precomputed with Dijkstra. By the triangle inequality
+     * d(v, t) ≥ |d(l, t) - d(l, v)| for every landmark l, so the largest of
+     * these differences is a lower bound of d(v, t) that never overestimates
+     * and is consistent: A* keyed by d(s, v) + bound(v, t) settles the nodes
+     * towards t first and usually far fewer of them than Dijkstra.
+     * Landmarks are chosen farthest first: the first is the node farthest from
+     * a node of maximum degree, every next one the node farthest from the
+     * landmarks already chosen, so they end up on the periphery of the
+     * component of that node, where the bounds are tightest. Every query only
+     * uses the ACTIVE landmarks giving the best bound between its endpoints.
+     * Distances are stored node major (the distances of v to all landmarks
+     * are adjacent), so computing a bound reads one cache line or two.
+     * Nodes unreachable from a landmark have distance +∞ to it: a node whose
+     * distance to some landmark is finite while the target's is not lies in
+     * another component, so A* skips it; landmarks reaching neither give no
+     * bound, and queries outside their component are plain Dijkstra searches.
+     * The precomputation costs `landmarks` Dijkstra searches and
+     * 8 * landmarks * n bytes; queries allocate nothing. Instances are not
+     * thread safe: every thread needs its own index or external locking.
+     *
+     * IR:  - graph ≠ null ∧ graph is symmetric, with symmetric weights
+     *      - 0 ≤ landmarks.length ≤ graph.size()
+     *      - distances.length == landmarks.length * graph.size()
+     *      - distances[v * landmarks.length + l] == weight of a shortest path
+     *        between landmarks[l] and v, +∞ if unreachable
+     *      - g.length == bound.length == stamp.length == heap.capacity() == graph.size()
+     */
+
+    // Landmarks used by every query
+    public static final int ACTIVE = 4;
+
+    private final IndexedGraph<?> graph;
+    private final int[] landmarks;
+    private final double[] distances;   // node major, see IR
+
+    // scratch buffers of the queries
+    private final double[] g;           // distance from the source, where stamp[v] == epoch
+    private final double[] bound;       // lower bound to the target, where stamp[v] == epoch
+    private final int[] stamp;
+    private final IndexedHeap heap;
+    private final int[] active;         // landmarks of the current query
+    private final double[] activeBounds; // their bounds between source and target, decreasing
+    private final double[] toTarget;    // their distances to the target
+    private int actives;
+    private int epoch;
+    private int settled;
+
+    //REQUIRES: graph ≠ null ∧ landmarks > 0
+    //          graph is symmetric, with symmetric weights
+    //EFFECTS:  Chooses min(landmarks, graph.size()) landmarks and precomputes
+    //          their distances.
+    //          If graph == null ∨ landmarks ≤ 0 ∨ landmarks * graph.size() does
+    //          not fit in an array
+    //                                  throws IllegalArgumentException (unchecked).
+    public LandmarkIndex(IndexedGraph<?> graph, int landmarks) throws IllegalArgumentException
+    {
+        if (graph == null || landmarks <= 0) throw new IllegalArgumentException();
+        final int n = graph.size();
+        final int k = Math.min(landmarks, n);
+        if ((long) k * n > Integer.MAX_VALUE - 8) throw new IllegalArgumentException();
+        this.graph = graph;
+        this.landmarks = new int[k];
+        distances = new double[k * n];
+        g = new double[n];
+        bound = new double[n];
+        stamp = new int[n];
+        heap = new IndexedHeap(n);
+        active = new int[Math.min(ACTIVE, k)];
+        activeBounds = new double[active.length];
+        toTarget = new double[active.length];
+        if (k > 0) choose();
+        assert(repOk());
+    }
+
+    // used to verify pre/post condition via assertions, in O(landmarks * n)
+    boolean repOk()
+    {
+        final int n = graph.size(), k = landmarks.length;
+        if (k > n || distances.length != k * n) return false;
+        if (g.length != n || bound.length != n || stamp.length != n || heap.capacity() != n) return false;
+        for (int l = 0; l < k; l++)
+        {
+            if (landmarks[l] < 0 || landmarks[l] >= n) return false;
+            if (distances[landmarks[l] * k + l] != 0) return false;
+        }
+        for (double d : distances)
+            if (!(d >= 0)) return false;
+        return true;
+    }
+
+    // Chooses the landmarks farthest first, filling distances
+    private void choose()
+    {
+        final int n = graph.size(), k = landmarks.length;
+        Dijkstra dijkstra = new Dijkstra(graph);
+        double[] row = new double[n];
+        double[] closest = new double[n];   // distance to the closest landmark so far
+
+        int hub = 0;
+        for (int v = 1; v < n; v++) if (graph.degree(v) > graph.degree(hub)) hub = v;
+        dijkstra.distances(hub, row);
+        int next = farthest(row);
+
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+        for (int l = 0; l < k; l++)
+        {
+            landmarks[l] = next;
+            dijkstra.distances(next, row);
+            for (int v = 0; v < n; v++)
+            {
+                distances[v * k + l] = row[v];
+                if (row[v] < closest[v]) closest[v] = row[v];
+            }
+            next = farthest(closest);
+            if (closest[next] == 0) next = unused(l + 1); // every reachable node is a landmark
+        }
+    }
+
+    // Returns the node with the largest finite value of row (the lowest id on
+    // ties), or the first one if no value is finite
+    private static int farthest(double[] row)
+    {
+        int best = 0;
+        for (int v = 0; v < row.length; v++)
+            if (row[v] < Double.POSITIVE_INFINITY && (row[best] == Double.POSITIVE_INFINITY || row[v] > row[best]))
+                best = v;
+        return best;
+    }
+
+    // Returns the lowest id that is not among the first count landmarks
+    private int unused(int count)
+    {
+        for (int v = 0; ; v++)
+        {
+            boolean used = false;
+            for (int l = 0; l < count && !used; l++) used = landmarks[l] == v;
+            if (!used) return v;
+        }
+    }
+
+    //EFFECTS: Returns the graph the index was built for
+    public IndexedGraph<?> graph()
+    {
+        return graph;
+    }
+
+    //EFFECTS: Returns the ids of the landmarks, in the order they were chosen
+    public int[] landmarks()
+    {
+        return landmarks.clone();
+    }
+
+    //EFFECTS: Returns the number of nodes settled by the last query
+    public int lastSettled()
+    {
+        return settled;
+    }
+
+    //REQUIRES: 0 ≤ v, target < graph().size()
+    //EFFECTS:  Returns a lower bound of the weight of a shortest path between v
+    //          and target from all the landmarks: +∞ if they are surely not
+    //          connected, 0 if no landmark tells anything.
+    public double lowerBound(int v, int target)
+    {
+        final int k = landmarks.length;
+        double best = 0;
+        for (int l = 0; l < k; l++) best = Math.max(best, difference(distances[v * k + l], distances[target * k + l]));
+        return best;
+    }
+
+    // Returns the lower bound given by a landmark at distance a from one node and
+    // b from the other
+    private static double difference(double a, double b)
+    {
+        if (a == Double.POSITIVE_INFINITY) return b == Double.POSITIVE_INFINITY ? 0 : Double.POSITIVE_INFINITY;
+        if (b == Double.POSITIVE_INFINITY) return Double.POSITIVE_INFINITY;
+        return Math.abs(a - b);
+    }
+
+    // Returns the lower bound between v and the target of the current query
+    private double activeBound(int v)
+    {
+        final int k = landmarks.length;
+        double best = 0;
+        for (int j = 0; j < actives; j++) best = Math.max(best, difference(distances[v * k + active[j]], toTarget[j]));
+        return best;
+    }
+
+    // Selects the ACTIVE landmarks with the largest bounds between source and target
+    private void activate(int source, int target)
+    {
+        final int k = landmarks.length;
+        double[] bounds = activeBounds;
+        actives = 0;
+        for (int l = 0; l < k; l++)
+        {
+            double b = difference(distances[source * k + l], distances[target * k + l]);
+            if (actives == active.length && b <= bounds[actives - 1]) continue;
+            int j = actives == active.length ? actives - 1 : actives++;
+            for (; j > 0 && bounds[j - 1] < b; j--)
+            {
+                bounds[j] = bounds[j - 1];
+                active[j] = active[j - 1];
+            }
+            bounds[j] = b;
+            active[j] = l;
+        }
+        for (int j = 0; j < actives; j++) toTarget[j] = distances[target * k + active[j]];
+    }
+
+    //REQUIRES: 0 ≤ source, target < graph().size()
+    //MODIFIES: this
+    //EFFECTS:  Returns the weight of a shortest path from source to target, or +∞
+    //          if target is unreachable, through an A* search guided by the
+    //          active landmarks of the pair.
+    public double distance(int source, int target)
+    {
+        settled = 0;
+        if (source == target) return 0;
+        activate(source, target);
+        if (++epoch == Integer.MAX_VALUE)
+        {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        heap.clear();
+
+        double h = activeBound(source);
+        if (h == Double.POSITIVE_INFINITY) return h;
+        stamp[source] = epoch;
+        g[source] = 0;
+        bound[source] = h;
+        heap.insert(source, h);
+
+        while (!heap.isEmpty())
+        {
+            int user = heap.poll();
+            settled++;
+            if (user == target) return g[user];
+            double current = g[user];
+            int degree = graph.degree(user);
+            for (int i = 0; i < degree; i++)
+            {
+                int adjacent = graph.neighbor(user, i);
+                double length = current + graph.weight(user, i);
+                if (stamp[adjacent] != epoch)
+                {
+                    stamp[adjacent] = epoch;
+                    bound[adjacent] = activeBound(adjacent);
+                }
+                else if (!(length < g[adjacent])) continue;
+                g[adjacent] = length;
+                // nodes of other components never reach target; settled nodes are
+                // queued again only if rounding made the bound slightly inconsistent
+                if (bound[adjacent] < Double.POSITIVE_INFINITY) heap.push(adjacent, length + bound[adjacent]);
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+}
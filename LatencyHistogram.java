@@ -0,0 +1,125 @@
+import java.lang.IllegalArgumentException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram
+{
+    /* OVERVIEW:
+     * The class LatencyHistogram records durations in nanoseconds with bounded
+     * relative error, in the style of HdrHistogram: values are grouped by their
+     * highest set bit, and every such power of two range is split in
+     * SUB_BUCKETS linear sub-buckets, so any recorded value is reported within
+     * 1/SUB_BUCKETS (about 1.6%) of its true value, from 1 ns up to 2^MAX_BITS
+     * ns (about 73 minutes); longer durations count as 2^MAX_BITS.
+     * record() costs a few shifts and one atomic increment, and never
+     * allocates, so threads can record concurrently; reads are not atomic with
+     * respect to concurrent records and thus only approximate while they run.
+     *
+     * AF:  the multiset of recorded values, each rounded down to the lowest
+     *      value of its sub-bucket
+     *
+     * IR:  - counts.length == (MAX_BITS - SUB_BITS + 2) * SUB_BUCKETS
+     *      - total == Σ counts[i] when no record() is running
+     */
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_BITS = 42;
+
+    private final AtomicLongArray counts;
+    private final LongAdder total;
+    private final LongAdder sum;
+
+    //EFFECTS: Creates an empty histogram
+    public LatencyHistogram()
+    {
+        counts = new AtomicLongArray((MAX_BITS - SUB_BITS + 2) * SUB_BUCKETS);
+        total = new LongAdder();
+        sum = new LongAdder();
+    }
+
+    // Returns the bucket of value: values below SUB_BUCKETS are exact, every
+    // following power of two range gets SUB_BUCKETS sub-buckets
+    private static int bucket(long value)
+    {
+        if (value < SUB_BUCKETS) return (int) Math.max(0, value);
+        value = Math.min(value, 1L << MAX_BITS);
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    // Returns the lowest value of the given bucket
+    private static long lowest(int bucket)
+    {
+        int shift = bucket / SUB_BUCKETS - 1;
+        if (shift < 0) return bucket;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Records a duration of the given number of nanoseconds (0 if negative).
+    public void record(long nanos)
+    {
+        counts.incrementAndGet(bucket(nanos));
+        total.increment();
+        sum.add(Math.max(0, nanos));
+    }
+
+    //EFFECTS: Returns the number of recorded values
+    public long count()
+    {
+        return total.sum();
+    }
+
+    //EFFECTS: Returns the mean recorded value in nanoseconds (0 if none)
+    public double mean()
+    {
+        long count = total.sum();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    //REQUIRES: 0 ≤ p ≤ 1
+    //EFFECTS:  Returns the lowest value v, up to the recording precision, such that
+    //          at least a fraction p of the recorded values is ≤ v (0 if none).
+    //          If p < 0 ∨ p > 1        throws IllegalArgumentException (unchecked).
+    public long percentile(double p) throws IllegalArgumentException
+    {
+        if (!(p >= 0 && p <= 1)) throw new IllegalArgumentException();
+        long[] snapshot = new long[counts.length()];
+        long count = 0;
+        for (int i = 0; i < snapshot.length; i++) count += snapshot[i] = counts.get(i);
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * count)), seen = 0;
+        for (int i = 0; i < snapshot.length; i++)
+        {
+            seen += snapshot[i];
+            if (seen >= rank) return lowest(i);
+        }
+        return lowest(snapshot.length - 1);
+    }
+
+    //EFFECTS: Returns the largest recorded value, up to the recording precision (0 if none)
+    public long max()
+    {
+        for (int i = counts.length() - 1; i >= 0; i--)
+            if (counts.get(i) != 0) return lowest(i);
+        return 0;
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Forgets every recorded value.
+    public void reset()
+    {
+        for (int i = 0; i < counts.length(); i++) counts.set(i, 0);
+        total.reset();
+        sum.reset();
+    }
+
+    //EFFECTS: Returns a string representation of the current class instance
+    @Override
+    public String toString()
+    {
+        return String.format("count: %d, mean: %.0f ns, p50: %d ns, p99: %d ns, p99.9: %d ns, max: %d ns",
+                count(), mean(), percentile(0.5), percentile(0.99), percentile(0.999), max());
+    }
+}
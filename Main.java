@@ -1,30 +1,124 @@
-
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
 import java.util.stream.Stream;
 
 
 
 public class Main 
 {
+    // Adds every user to the network, befriending 5 random users already inserted
+    private static void populate(SocialNetwork network, Stream<String> users)
+    {
+        users.forEach(line -> 
+                {
+                    network.addUser(line);
+                    for (int i=0; i<5; i++) network.addFriendship(line, network.randomUser());
+                }
+        );
+    }
+
+    // Cross-checks exactDiameter() and approximateDiameter() against diameter()
+    // on small random networks built like the one in main, all drawn from seed so
+    // that a mismatch can be reproduced. Returns the number of mismatches found.
+    private static int check(List<String> names, int networks, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        int mismatches = 0;
+        for (int i=0; i<networks; i++)
+        {
+            SocialNetwork network = new SocialNetwork(random.nextLong());
+            int size = 1 + random.nextInt(Math.min(names.size(), 300));
+            int skip = random.nextInt(names.size() - size + 1);
+            populate(network, names.stream().skip(skip).limit(size));
+
+            int expected = network.diameter();
+            int exact = network.exactDiameter();
+            int tolerance = random.nextInt(4);
+            int approximate = network.approximateDiameter(tolerance);
+            if (exact != expected || approximate > expected || approximate + tolerance < expected)
+            {
+                System.out.println("mismatch on " + size + " users: diameter " + expected + 
+                        ", exact " + exact + ", approximate " + approximate + " (tolerance " + tolerance + ")");
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    // Loads a network into an empty one in incremental mode, then checks that new
+    // friendships keep the diameter estimate and the memoized distances in step
+    // with the loaded graph. Returns the number of mismatches found.
+    private static int checkIncrementalLoad() throws IOException
+    {
+        Path users = Files.createTempFile("users", ".txt");
+        Path friendships = Files.createTempFile("friendships", ".txt");
+        try
+        {
+            Files.write(users, Arrays.asList("a", "b", "c", "d"));
+            Files.write(friendships, Arrays.asList("a b", "c d"));
+            SocialNetwork network = new SocialNetwork(1);
+            network.setDistanceCacheCapacity(1 << 20);
+            network.setIncremental(true);
+            network.load(users, friendships);
+            int before = network.diameterEstimate();
+            int cached = network.shortestPath("a", "b");
+            network.addFriendship("b", "c");
+            int after = network.diameterEstimate(), path = network.shortestPath("a", "d");
+            if (before == 1 && cached == 1 && after >= 1 && after <= network.diameter() && path == 3) return 0;
+            System.out.println("mismatch after load in incremental mode: estimate " + before + " then " + after +
+                    ", diameter " + network.diameter() + ", shortestPath(a -> d) " + path);
+            return 1;
+        }
+        finally
+        {
+            Files.deleteIfExists(users);
+            Files.deleteIfExists(friendships);
+        }
+    }
+
     public static void main(String[] args)
     {
+        if (args.length > 0 && args[0].equals("--check"))
+        {
+            try
+            {
+                int networks = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+                long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+                int mismatches = check(Files.readAllLines(Paths.get("nomi_italiani.txt")), networks, seed);
+                mismatches += checkIncrementalLoad();
+                System.out.println(networks + " networks checked (seed " + seed + "), " + mismatches + " mismatches");
+                System.exit(mismatches == 0 ? 0 : 1);
+            }
+            catch(IOException e) 
+            {
+                System.err.println("cannot read nomi_italiani.txt: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
         SocialNetwork network = new SocialNetwork();
 
         try
         {
-            Files.lines(Paths.get("nomi_italiani.txt")).forEach(line -> 
-                    {
-                        network.addUser(line);
-                        for (int i=0; i<5; i++) network.addFriendship(line, network.randomUser());
-                    }
-            );
+            if (args.length == 2) // users file and friendships file
+                System.out.println("loaded " + network.load(Paths.get(args[0]), Paths.get(args[1])));
+            else
+                populate(network, Files.lines(Paths.get("nomi_italiani.txt")));
+        }
+        catch(IOException e) 
+        {
+            System.err.println("cannot load the network: " + e.getMessage());
+            System.exit(1);
         }
-        catch(IOException e) {}
 
         network.prettyPrint();
         System.out.println("shortestPath(marco -> sara): " + network.shortestPath("marco", "sara"));
-        System.out.println("network diameter: " + network.diameter());
+        System.out.println("network diameter: " + network.exactDiameter() +
+                " (largest among " + network.componentCount() + " connected components)");
     }
 }
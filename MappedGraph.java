@@ -0,0 +1,333 @@
+import java.io.IOException;
+import java.lang.IllegalArgumentException;
+import java.lang.UnsupportedOperationException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+public class MappedGraph implements Graph<String>, IndexedGraph<String>, Iterable<String>
+{
+    /* OVERVIEW:
+     * The class MappedGraph represents an immutable Graph<String> served straight
+     * from a memory mapped snapshot file, without materializing any Node: labels
+     * are decoded on demand and adjacency is read from the mapped CSR arrays.
+     * Snapshots are written by write(IndexedGraph<String>, Path) and have the
+     * following little endian layout, every section starting at a multiple of 4:
+     *
+     *      header      magic "UGRF", version, n, m, dictionary bytes, table slots,
+     *                  CRC32 of everything after the header
+     *      labels      int[n+1]    offset of the UTF-8 bytes of every label
+     *      dictionary  byte[]      UTF-8 bytes of every label, back to back
+     *      table       int[slots]  open addressing hash table: id+1, 0 if empty
+     *      offsets     int[n+1]    CSR offsets
+     *      targets     int[m]      CSR targets
+     *
+     * Opening a snapshot maps the file and validates header and checksum; a
+     * label lookup probes the table, compares bytes and allocates nothing but
+     * the encoded label. Files larger than 2GB are not supported.
+     */
+
+    private static final int MAGIC = 0x46524755; // "UGRF" in little endian
+    private static final int VERSION = 1;
+    private static final int HEADER = 40;
+
+    private final MappedByteBuffer buffer;
+    private final int n, m, slots;
+    private final IntBuffer labels, table, offsets, targets;
+    private final int dictionary;   // position of the dictionary inside buffer
+
+    private MappedGraph(MappedByteBuffer buffer) throws IOException
+    {
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER || buffer.getInt(0) != MAGIC) throw new IOException("not a graph snapshot");
+        if (buffer.getInt(4) != VERSION) throw new IOException("unsupported snapshot version " + buffer.getInt(4));
+        n = buffer.getInt(8);
+        m = buffer.getInt(12);
+        long bytes = buffer.getLong(16);
+        slots = buffer.getInt(24);
+
+        long position = HEADER;
+        long length = position + 4L * (n + 1) + align(bytes) + 4L * slots + 4L * (n + 1) + 4L * m;
+        if (n < 0 || m < 0 || bytes < 0 || Integer.bitCount(slots) != 1 || slots <= n || length != buffer.limit())
+            throw new IOException("corrupted snapshot header");
+
+        labels = slice(position, n + 1);
+        position += 4L * (n + 1);
+        dictionary = (int) position;
+        position += align(bytes);
+        table = slice(position, slots);
+        position += 4L * slots;
+        offsets = slice(position, n + 1);
+        position += 4L * (n + 1);
+        targets = slice(position, m);
+    }
+
+    private static long align(long bytes)
+    {
+        return (bytes + 3) & ~3L;
+    }
+
+    private IntBuffer slice(long position, int ints)
+    {
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) position).limit((int) (position + 4L * ints));
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    //REQUIRES: file ≠ null
+    //EFFECTS:  Maps the snapshot stored in file, verifying its checksum if verify == true.
+    //          If file == null         throws IllegalArgumentException (unchecked).
+    //          If file cannot be read, is not a valid snapshot or its checksum
+    //          does not match          throws IOException.
+    public static MappedGraph open(Path file, boolean verify) throws IOException, IllegalArgumentException
+    {
+        if (file == null) throw new IllegalArgumentException();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException(file + ": snapshot larger than 2GB");
+            MappedGraph graph = new MappedGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            if (verify && graph.checksum() != graph.buffer.getLong(32))
+                throw new IOException(file + ": checksum mismatch");
+            return graph;
+        }
+    }
+
+    //REQUIRES: file ≠ null
+    //EFFECTS:  Same as open(file, true).
+    public static MappedGraph open(Path file) throws IOException, IllegalArgumentException
+    {
+        return open(file, true);
+    }
+
+    // CRC32 of everything after the header
+    private long checksum()
+    {
+        CRC32 crc = new CRC32();
+        ByteBuffer body = buffer.duplicate();
+        body.position(HEADER);
+        crc.update(body);
+        return crc.getValue();
+    }
+
+    // Spreads the bits of hashCode, as HashMap does
+    private static int hash(String label)
+    {
+        int h = label.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    //REQUIRES: graph ≠ null ∧ file ≠ null
+    //EFFECTS:  Writes a snapshot of graph to file, replacing it if it exists.
+    //          If graph == null ∨ file == null
+    //                                  throws IllegalArgumentException (unchecked).
+    //          If the snapshot cannot be written, or would exceed 2GB
+    //                                  throws IOException.
+    public static void write(IndexedGraph<String> graph, Path file) throws IOException, IllegalArgumentException
+    {
+        if (graph == null || file == null) throw new IllegalArgumentException();
+        final int n = graph.size();
+        byte[][] encoded = new byte[n][];
+        long bytes = 0, m = 0;
+        for (int v = 0; v < n; v++)
+        {
+            encoded[v] = graph.labelOf(v).getBytes(StandardCharsets.UTF_8);
+            bytes += encoded[v].length;
+            m += graph.degree(v);
+        }
+        int slots = Integer.highestOneBit(Math.max(2, n + n / 2)) << 1;
+        long length = HEADER + 4L * (n + 1) + align(bytes) + 4L * slots + 4L * (n + 1) + 4L * m;
+        if (length > Integer.MAX_VALUE) throw new IOException("snapshot larger than 2GB");
+
+        ByteBuffer out = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt((int) m).putLong(bytes).putInt(slots).putInt(0).putLong(0);
+
+        int offset = 0;
+        for (int v = 0; v < n; v++)
+        {
+            out.putInt(offset);
+            offset += encoded[v].length;
+        }
+        out.putInt(offset);
+        for (int v = 0; v < n; v++) out.put(encoded[v]);
+        out.position((int) (out.position() + align(bytes) - bytes));
+
+        int[] ids = new int[slots];
+        for (int v = 0; v < n; v++)
+        {
+            int slot = hash(graph.labelOf(v)) & (slots - 1);
+            while (ids[slot] != 0) slot = (slot + 1) & (slots - 1);
+            ids[slot] = v + 1;
+        }
+        for (int id : ids) out.putInt(id);
+
+        int edges = 0;
+        for (int v = 0; v < n; v++)
+        {
+            out.putInt(edges);
+            edges += graph.degree(v);
+        }
+        out.putInt(edges);
+        for (int v = 0; v < n; v++)
+            for (int i = 0; i < graph.degree(v); i++) out.putInt(graph.neighbor(v, i));
+
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), HEADER, (int) length - HEADER);
+        out.putLong(32, crc.getValue());
+
+        out.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            while (out.hasRemaining()) channel.write(out);
+            channel.force(true);
+        }
+    }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void addNode(Node<String> node) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void addNode(String nodeLabel) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void addEdge(Edge<String> edge) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void removeNode(Node<String> node) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void removeNode(String nodeLabel) { throw new UnsupportedOperationException(); }
+
+    //EFFECTS: Always throws UnsupportedOperationException: the graph is immutable.
+    public void removeEdge(Edge<String> edge) { throw new UnsupportedOperationException(); }
+
+    //REQUIRES: nodeLabel ≠ null
+    //EFFECTS:  Returns true if the snapshot holds a node labelled nodeLabel.
+    //          If nodeLabel == null    throws IllegalArgumentException (unchecked).
+    public boolean containsNode(String nodeLabel) throws IllegalArgumentException
+    {
+        return indexOf(nodeLabel) != -1;
+    }
+
+    //EFFECTS: Returns the number of nodes n
+    public int size()
+    {
+        return n;
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //EFFECTS:  Returns the id of nodeLabel, or -1 if there is no such node.
+    //          If nodeLabel == null    throws IllegalArgumentException (unchecked).
+    public int indexOf(String nodeLabel) throws IllegalArgumentException
+    {
+        if (nodeLabel == null) throw new IllegalArgumentException();
+        byte[] key = nodeLabel.getBytes(StandardCharsets.UTF_8);
+        int slot = hash(nodeLabel) & (slots - 1);
+        for (int id; (id = table.get(slot)) != 0; slot = (slot + 1) & (slots - 1))
+            if (matches(id - 1, key)) return id - 1;
+        return -1;
+    }
+
+    // Returns true if the bytes of the label with the given id are equal to key
+    private boolean matches(int id, byte[] key)
+    {
+        int from = labels.get(id), to = labels.get(id + 1);
+        if (to - from != key.length) return false;
+        for (int i = 0; i < key.length; i++)
+            if (buffer.get(dictionary + from + i) != key[i]) return false;
+        return true;
+    }
+
+    //REQUIRES: 0 ≤ id < size()
+    //EFFECTS:  Returns a new String decoded from the label with the given id.
+    public String labelOf(int id)
+    {
+        int from = labels.get(id), to = labels.get(id + 1);
+        byte[] bytes = new byte[to - from];
+        buffer.get(dictionary + from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //REQUIRES: 0 ≤ id < size()
+    //EFFECTS:  Returns the number of outgoing connections of the node with the given id.
+    public int degree(int id)
+    {
+        return offsets.get(id + 1) - offsets.get(id);
+    }
+
+    //REQUIRES: 0 ≤ id < size()
+    //          0 ≤ i < degree(id)
+    //EFFECTS:  Returns the id of the i-th node adjacent to the node with the given id.
+    public int neighbor(int id, int i)
+    {
+        return targets.get(offsets.get(id) + i);
+    }
+
+    //REQUIRES: nodeLabel ≠ null
+    //          containsNode(nodeLabel) == true
+    //EFFECTS:  Returns a read-only collection view over the adjacency of nodeLabel.
+    //          If nodeLabel == null    throws IllegalArgumentException
+    //          If containsNode(nodeLabel) == false
+    //                                  throws NoSuchElementException
+    public Collection<String> getAdjacency(String nodeLabel) throws NoSuchElementException, IllegalArgumentException
+    {
+        final int id = indexOf(nodeLabel);
+        if (id == -1) throw new NoSuchElementException();
+        return new AbstractCollection<String>()
+        {
+            @Override
+            public int size() { return degree(id); }
+
+            @Override
+            public Iterator<String> iterator() { return labels(id, 0, degree(id)); }
+        };
+    }
+
+    //EFFECTS: Returns a read-only iterator over the labels, in id order
+    public Iterator<String> iterator()
+    {
+        return labels(-1, 0, n);
+    }
+
+    // Iterates over labelOf(neighbor(id, i)) for i ∈ [from, to), or over
+    // labelOf(i) if id == -1
+    private Iterator<String> labels(final int id, final int from, final int to)
+    {
+        return new Iterator<String>()
+        {
+            private int next = from;
+
+            public boolean hasNext() { return next < to; }
+
+            public String next()
+            {
+                if (next >= to) throw new NoSuchElementException();
+                int i = next++;
+                return labelOf(id == -1 ? i : neighbor(id, i));
+            }
+        };
+    }
+
+    //EFFECTS: Returns a string representation of the current class instance
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int v = 0; v < n; v++)
+        {
+            sb.append(labelOf(v) + ": " + getAdjacency(labelOf(v)) + "\n");
+        }
+        return sb.toString();
+    }
+}
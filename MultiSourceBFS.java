@@ -0,0 +1,207 @@
+import java.lang.IllegalArgumentException;
+import java.util.Arrays;
+
+public class MultiSourceBFS
+{
+    /* OVERVIEW:
+     * The class MultiSourceBFS represents a reusable engine running BFS from up
+     * to 64 * words sources at once over the dense ids of an IndexedGraph, as in
+     * the MS-BFS of Then et al.
+     * Every source gets a lane, i.e. a bit of a group of words longs held by
+     * each node: seen has the bit of a lane set at the nodes that source has
+     * reached, frontier at the nodes it reached at the current level. A level
+     * scans the adjacency of every node whose frontier is not empty once, and
+     * ORs that frontier into the next one of every neighbor, thus advancing all
+     * the sources that share the node in a single pass; since BFS trees from
+     * nearby sources overlap heavily on social graphs, a batch of 64 sources
+     * costs only a few times a single BFS.
+     * Distance histograms are counted per level through the bits newly set in
+     * each lane; eccentricities come from the last level a lane grew at.
+     * Instances are not thread safe: every thread needs its own engine.
+     *
+     * IR:  - graph ≠ null ∧ 1 ≤ words ≤ MAX_WORDS
+     *      - seen.length == frontier.length == next.length ≥ graph.size() * words
+     */
+
+    public static final int MAX_WORDS = 4;  // 256 sources per batch
+
+    private IndexedGraph<?> graph;
+    private final int words;
+    private long[] seen, frontier, next;
+    private final int[] lanes;              // lanes[l] = index in the batch of lane l, if active
+    private int levels;                     // levels expanded by the last batch
+
+    //REQUIRES: graph ≠ null ∧ 1 ≤ words ≤ MAX_WORDS
+    //EFFECTS:  Creates an engine for graph advancing 64 * words sources at once.
+    //          If graph == null ∨ words < 1 ∨ words > MAX_WORDS
+    //                                  throws IllegalArgumentException (unchecked).
+    public MultiSourceBFS(IndexedGraph<?> graph, int words) throws IllegalArgumentException
+    {
+        if (words < 1 || words > MAX_WORDS) throw new IllegalArgumentException();
+        this.words = words;
+        lanes = new int[64 * words];
+        seen = frontier = next = new long[0];
+        reset(graph);
+    }
+
+    //REQUIRES: graph ≠ null ∧ graph.size() * lanes() / 64 fits in an array
+    //MODIFIES: this
+    //EFFECTS:  Binds the engine to graph, growing the scratch buffers only if
+    //          they are smaller than graph.size() * lanes() / 64.
+    //          If graph == null ∨ graph.size() * lanes() / 64 does not fit in an array
+    //                                  throws IllegalArgumentException (unchecked).
+    public void reset(IndexedGraph<?> graph) throws IllegalArgumentException
+    {
+        if (graph == null) throw new IllegalArgumentException();
+        final long size = (long) graph.size() * words;
+        if (size > Integer.MAX_VALUE - 8) throw new IllegalArgumentException();
+        this.graph = graph;
+        if (seen.length < size)
+        {
+            seen = new long[(int) size];
+            frontier = new long[seen.length];
+            next = new long[seen.length];
+        }
+    }
+
+    //REQUIRES: 0 ≤ words ≤ MAX_WORDS ∧ nodes ≥ 0 ∧ engines ≥ 1
+    //EFFECTS:  Returns the largest w ≤ words such that engines engines of w words
+    //          over a graph of the given number of nodes take at most budget bytes
+    //          of scratch buffers (24 * w bytes per node each), 0 if none does.
+    public static int fit(int words, int nodes, int engines, long budget)
+    {
+        int w = words;
+        while (w > 0 && 24L * w * nodes * engines > budget) w--;
+        return w;
+    }
+
+    //EFFECTS: Returns the graph the engine is bound to
+    public IndexedGraph<?> graph()
+    {
+        return graph;
+    }
+
+    //EFFECTS: Returns the number of sources advanced at once
+    public int lanes()
+    {
+        return lanes.length;
+    }
+
+    //EFFECTS: Returns the number of levels expanded by the last batch
+    public int lastLevels()
+    {
+        return levels;
+    }
+
+    //REQUIRES: sources ≠ null ∧ eccentricities ≠ null
+    //          eccentricities.length ≥ sources.length
+    //          0 ≤ sources[i] < graph().size() ∀ i
+    //          histograms == null ∨ histograms.length ≥ sources.length
+    //MODIFIES: eccentricities, histograms
+    //EFFECTS:  Sets eccentricities[i] to the eccentricity of sources[i] and, if
+    //          histograms ≠ null, histograms[i] to a new array whose d-th entry is
+    //          the number of nodes at d hops from sources[i], for every i, running
+    //          one batch per lanes() sources. Returns max eccentricities[i] (-1 if
+    //          there are no sources).
+    //          If sources == null ∨ eccentricities == null ∨ an array is too short
+    //                                  throws IllegalArgumentException (unchecked).
+    //          If a source is out of bounds
+    //                                  throws IndexOutOfBoundsException (unchecked).
+    public int eccentricities(int[] sources, int[] eccentricities, int[][] histograms)
+        throws IllegalArgumentException
+    {
+        if (sources == null || eccentricities == null || eccentricities.length < sources.length ||
+                (histograms != null && histograms.length < sources.length))
+            throw new IllegalArgumentException();
+        int max = -1;
+        for (int from = 0; from < sources.length; from += lanes.length)
+        {
+            int to = Math.min(sources.length, from + lanes.length);
+            max = Math.max(max, batch(sources, from, to, eccentricities, histograms));
+        }
+        return max;
+    }
+
+    // Runs the batch sources[from .. to), returning its largest eccentricity
+    private int batch(int[] sources, int from, int to, int[] eccentricities, int[][] histograms)
+    {
+        final int n = graph.size(), k = words;
+        Arrays.fill(seen, 0, n * k, 0);
+        Arrays.fill(frontier, 0, n * k, 0);
+        Arrays.fill(next, 0, n * k, 0);
+
+        // counts[l][d]: nodes first reached by lane l at level d
+        int[][] counts = histograms == null ? null : new int[to - from][];
+        for (int i = from; i < to; i++)
+        {
+            int lane = i - from, s = sources[i];
+            if (s < 0 || s >= n) throw new IndexOutOfBoundsException();
+            lanes[lane] = i;
+            seen[s * k + (lane >>> 6)] |= 1L << lane;
+            frontier[s * k + (lane >>> 6)] |= 1L << lane;
+            eccentricities[i] = 0;
+            if (counts != null) counts[lane] = new int[] { 1, 0, 0, 0, 0, 0, 0, 0 };
+        }
+
+        levels = 0;
+        long[] grown = new long[k];
+        boolean active = true;
+        while (active)
+        {
+            // push every frontier to the neighbors of its node
+            for (int v = 0; v < n; v++)
+            {
+                int base = v * k;
+                boolean empty = true;
+                for (int j = 0; j < k; j++) empty &= frontier[base + j] == 0;
+                if (empty) continue;
+                int degree = graph.degree(v);
+                for (int i = 0; i < degree; i++)
+                {
+                    int w = graph.neighbor(v, i) * k;
+                    for (int j = 0; j < k; j++) next[w + j] |= frontier[base + j];
+                }
+            }
+
+            // keep the newly reached lanes only, recording their level
+            active = false;
+            Arrays.fill(grown, 0);
+            int depth = levels + 1;
+            for (int x = 0; x < n * k; x++)
+            {
+                long reached = next[x] & ~seen[x];
+                next[x] = 0;
+                frontier[x] = reached;
+                if (reached == 0) continue;
+                seen[x] |= reached;
+                grown[x % k] |= reached;
+                active = true;
+                if (counts != null) count(counts, (x % k) << 6, reached, depth);
+            }
+            if (!active) break;
+            levels = depth;
+            for (int j = 0; j < k; j++)
+                for (long bits = grown[j]; bits != 0; bits &= bits - 1)
+                    eccentricities[lanes[(j << 6) + Long.numberOfTrailingZeros(bits)]] = depth;
+        }
+
+        int max = -1;
+        for (int i = from; i < to; i++)
+        {
+            max = Math.max(max, eccentricities[i]);
+            if (histograms != null) histograms[i] = Arrays.copyOf(counts[i - from], eccentricities[i] + 1);
+        }
+        return max;
+    }
+
+    // Adds 1 to counts[lane][depth] for every lane of the given word set in bits
+    private static void count(int[][] counts, int first, long bits, int depth)
+    {
+        for (; bits != 0; bits &= bits - 1)
+        {
+            int lane = first + Long.numberOfTrailingZeros(bits);
+            if (depth == counts[lane].length) counts[lane] = Arrays.copyOf(counts[lane], 2 * depth);
+            counts[lane][depth]++;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 import java.util.ArrayList;
 import java.util.function.Predicate;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.NoSuchElementException;
 
 public abstract class Node<E>
@@ -12,10 +13,15 @@ public abstract class Node<E>
      * a set containing values of type E.
      * a typical instance is the tuple: <label, {v¹, v², ... , vⁿ}>
      * Nodes cannot contain connections to themselves.
+     * Connections are read through a read-only view of adjacency, created on
+     * the first getAdjacency() and returned by every later one.
+     * Every connection has a weight, Edge.DEFAULT_WEIGHT unless the subclass
+     * can store others (see HashNode).
      */
 
     protected final E label;
     protected Collection<E> adjacency;
+    private Collection<E> view;     // null until getAdjacency() is first invoked
 
     public Node(Collection<E> adjacency, E label) throws IllegalArgumentException
     {
@@ -41,6 +47,25 @@ public abstract class Node<E>
                 adjacency.add(nodeLabel);
     }
 
+    // Adds the connection towards nodeLabel with the given weight, or sets the
+    // weight of the existing one. Throws UnsupportedOperationException if the
+    // node only holds Edge.DEFAULT_WEIGHT and weight is different.
+    public void addConnection(E nodeLabel, double weight) throws IllegalArgumentException, UnsupportedOperationException
+    {
+        if (!Edge.isWeight(weight)) throw new IllegalArgumentException();
+        if (weight != Edge.DEFAULT_WEIGHT) throw new UnsupportedOperationException();
+        addConnection(nodeLabel);
+    }
+
+    // Returns the weight of the connection towards nodeLabel.
+    // Throws NoSuchElementException if there is no such connection.
+    public double getWeight(E nodeLabel) throws NoSuchElementException, IllegalArgumentException
+    {
+        if (nodeLabel == null) throw new IllegalArgumentException();
+        if (!adjacency.contains(nodeLabel)) throw new NoSuchElementException();
+        return Edge.DEFAULT_WEIGHT;
+    }
+
     public void removeConnection(E nodeLabel) throws NoSuchElementException, IllegalArgumentException
     {
         if (nodeLabel == null) throw new IllegalArgumentException();
@@ -50,8 +75,10 @@ public abstract class Node<E>
         if(!adjacency.removeIf(p)) throw new NoSuchElementException();
     }
 
+    // Returns a read-only view of the connections, which reflects later changes
     public Collection<E> getAdjacency()
     {
-        return adjacency; // TODO: force deep copy
+        if (view == null) view = Collections.unmodifiableCollection(adjacency);
+        return view;
     }
 }
@@ -0,0 +1,235 @@
+import java.lang.IllegalArgumentException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelDiameter
+{
+    /* OVERVIEW:
+     * The class ParallelDiameter computes the diameter of an IndexedGraph, i.e. the
+     * maximum eccentricity among its nodes, running exactly one BFS per source.
+     * Sources are split recursively across a ForkJoinPool; work stealing keeps
+     * every worker busy even though BFS costs vary a lot from node to node.
+     * Each leaf task borrows a BreadthFirstSearch engine from a shared pool and
+     * gives it back once done, so scratch buffers are allocated roughly once
+     * per worker thread and never shared between two running tasks.
+     * Leaves may run DirectionOptimizingBFS engines instead, which is faster on
+     * large symmetric graphs of small diameter (see setDirectionOptimizing);
+     * their bottom-up levels then stay sequential, as sources already run in
+     * parallel. Or they may run MultiSourceBFS engines, which advance up to 256
+     * sources per scan of the graph (see setMultiSource) at the cost of 24 bytes
+     * per node for every 64 of them; batches are narrowed so that the engines
+     * of all the workers fit in a quarter of the heap.
+     * A computation can be cancelled from any thread, or bounded by a timeout.
+     */
+
+    // Receives progress updates, always from the thread that invoked compute()
+    public interface Progress
+    {
+        void report(int done, int total);
+    }
+
+    private static final long REPORT_INTERVAL = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final IndexedGraph<?> graph;
+    private final ConcurrentLinkedQueue<BreadthFirstSearch> engines;
+    private final ConcurrentLinkedQueue<DirectionOptimizingBFS> hybrids;
+    private final ConcurrentLinkedQueue<MultiSourceBFS> batches;
+    private boolean directionOptimizing;
+    private int words;          // > 0: MultiSourceBFS engines with at most that many words
+    private int batchWords;     // words of the engines of the current computation
+    private final AtomicInteger done;
+    private int threshold;      // largest range of sources handled by a single leaf
+    private volatile boolean cancelled;
+
+    //REQUIRES: graph ≠ null
+    //EFFECTS:  Creates a computation over graph.
+    //          If graph == null        throws IllegalArgumentException (unchecked).
+    public ParallelDiameter(IndexedGraph<?> graph) throws IllegalArgumentException
+    {
+        if (graph == null) throw new IllegalArgumentException();
+        this.graph = graph;
+        engines = new ConcurrentLinkedQueue<>();
+        hybrids = new ConcurrentLinkedQueue<>();
+        batches = new ConcurrentLinkedQueue<>();
+        directionOptimizing = false;
+        words = 0;
+        batchWords = 0;
+        done = new AtomicInteger();
+        cancelled = false;
+    }
+
+    //REQUIRES: enabled ⇒ graph is symmetric
+    //MODIFIES: this
+    //EFFECTS:  Selects DirectionOptimizingBFS (if enabled) or BreadthFirstSearch
+    //          engines for the computations started afterwards.
+    public void setDirectionOptimizing(boolean enabled)
+    {
+        directionOptimizing = enabled;
+    }
+
+    //REQUIRES: 0 ≤ words ≤ MultiSourceBFS.MAX_WORDS
+    //MODIFIES: this
+    //EFFECTS:  Selects MultiSourceBFS engines advancing up to 64 * words sources at
+    //          once for the computations started afterwards, or single source
+    //          engines if words == 0: each computation uses as many words as let
+    //          one engine per worker of its pool fit in a quarter of the heap, and
+    //          single source engines if not even one does. Overrides
+    //          setDirectionOptimizing if MultiSourceBFS engines are used.
+    //          If words < 0 ∨ words > MultiSourceBFS.MAX_WORDS
+    //                                  throws IllegalArgumentException (unchecked).
+    public void setMultiSource(int words) throws IllegalArgumentException
+    {
+        if (words < 0 || words > MultiSourceBFS.MAX_WORDS) throw new IllegalArgumentException();
+        this.words = words;
+    }
+
+    //MODIFIES: this
+    //EFFECTS:  Asks every running task to stop; compute() then throws CancellationException.
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    //EFFECTS: Returns the number of sources whose BFS has completed
+    public int done()
+    {
+        return done.get();
+    }
+
+    //REQUIRES: pool ≠ null ∧ unit ≠ null
+    //MODIFIES: this
+    //EFFECTS:  Returns the maximum eccentricity of graph's nodes (-1 if graph is empty),
+    //          computed on pool. If progress ≠ null it is periodically invoked from
+    //          the calling thread with the number of completed sources.
+    //          A timeout ≤ 0 means no time limit.
+    //          If pool == null ∨ unit == null
+    //                                  throws IllegalArgumentException (unchecked).
+    //          If the time limit expires
+    //                                  cancels the computation and throws TimeoutException.
+    //          If cancel() is invoked or the calling thread is interrupted
+    //                                  throws CancellationException (unchecked).
+    public int compute(ForkJoinPool pool, long timeout, TimeUnit unit, Progress progress)
+        throws TimeoutException, CancellationException, IllegalArgumentException
+    {
+        if (pool == null || unit == null) throw new IllegalArgumentException();
+        final long start = System.nanoTime();
+        final long limit = timeout > 0 ? unit.toNanos(timeout) : Long.MAX_VALUE;
+        // aim for a few dozen leaves per worker so stealing can balance the load
+        batchWords = MultiSourceBFS.fit(words, graph.size(), pool.getParallelism(), Runtime.getRuntime().maxMemory() / 4);
+        threshold = Math.max(Math.max(1, 64 * batchWords), graph.size() / (pool.getParallelism() * 32));
+        ForkJoinTask<Integer> task = pool.submit(new Sources(0, graph.size()));
+
+        while (true)
+        {
+            long wait = Math.min(REPORT_INTERVAL, limit - (System.nanoTime() - start));
+            if (wait <= 0)
+            {
+                cancel();
+                throw new TimeoutException();
+            }
+
+            try
+            {
+                int diameter = task.get(wait, TimeUnit.NANOSECONDS);
+                if (cancelled) throw new CancellationException();
+                if (progress != null) progress.report(done(), graph.size());
+                return diameter;
+            }
+            catch (TimeoutException e)
+            {
+                if (cancelled) throw new CancellationException();
+                if (progress != null) progress.report(done(), graph.size());
+            }
+            catch (InterruptedException e)
+            {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+            catch (ExecutionException e)
+            {
+                cancel();
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    // Maximum eccentricity among the sources in [from, to)
+    private class Sources extends RecursiveTask<Integer>
+    {
+        private static final long serialVersionUID = 1L;
+        private final int from, to;
+
+        Sources(int from, int to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute()
+        {
+            if (to - from > threshold)
+            {
+                int middle = (from + to) >>> 1;
+                Sources left = new Sources(from, middle);
+                left.fork();
+                int right = new Sources(middle, to).compute();
+                return Math.max(left.join(), right);
+            }
+
+            int max = -1;
+            if (batchWords > 0)
+            {
+                MultiSourceBFS search = batches.poll();
+                if (search == null) search = new MultiSourceBFS(graph, batchWords);
+                int[] sources = new int[search.lanes()], eccentricities = new int[search.lanes()];
+                for (int source = from; source < to && !cancelled; source += sources.length)
+                {
+                    int batch = Math.min(sources.length, to - source);
+                    if (batch < sources.length)
+                    {
+                        sources = new int[batch];
+                        eccentricities = new int[batch];
+                    }
+                    for (int i = 0; i < batch; i++) sources[i] = source + i;
+                    max = Math.max(max, search.eccentricities(sources, eccentricities, null));
+                    done.addAndGet(batch);
+                }
+                batches.offer(search);
+                return max;
+            }
+
+            if (directionOptimizing)
+            {
+                DirectionOptimizingBFS search = hybrids.poll();
+                if (search == null) search = new DirectionOptimizingBFS(graph);
+                for (int source = from; source < to && !cancelled; source++)
+                {
+                    max = Math.max(max, search.eccentricity(source));
+                    done.incrementAndGet();
+                }
+                hybrids.offer(search);
+                return max;
+            }
+
+            BreadthFirstSearch search = engines.poll();
+            if (search == null) search = new BreadthFirstSearch(graph);
+            for (int source = from; source < to && !cancelled; source++)
+            {
+                max = Math.max(max, search.eccentricity(source));
+                done.incrementAndGet();
+            }
+            engines.offer(search);
+            return max;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+import java.lang.IllegalArgumentException;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+public final class PersistentMap<K, V> implements Iterable<Map.Entry<K, V>>
+{
+    /* OVERVIEW:
+     * The class PersistentMap<K, V> represents an immutable map from keys of
+     * type K to values of type V, stored as a hash array mapped trie (HAMT).
+     * put and remove never modify an instance: they return a new map sharing
+     * every untouched subtree with the old one, copying only the O(log₃₂ n)
+     * nodes on the path to the key. Old versions therefore stay valid, and can
+     * be read from any thread, however the newer ones are changed.
+     * Every trie node consumes 5 bits of the (spread) hash of a key; keys whose
+     * hashes are equal end up in a collision node, searched linearly.
+     *
+     * AF:  { <k, v> : <k, v> stored in a leaf reachable from root }
+     *
+     * IR:  - size == number of leaves reachable from root
+     *      - keys and values ≠ null, keys are pairwise distinct
+     */
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    private final Trie root;    // null if the map is empty
+    private final int size;
+
+    private PersistentMap(Trie root, int size)
+    {
+        this.root = root;
+        this.size = size;
+    }
+
+    //EFFECTS: Returns the empty map
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty()
+    {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    private static int hash(Object key)
+    {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    //EFFECTS: Returns the number of mappings
+    public int size()
+    {
+        return size;
+    }
+
+    //REQUIRES: key ≠ null
+    //EFFECTS:  Returns the value mapped to key, null if there is none.
+    //          If key == null          throws IllegalArgumentException (unchecked).
+    @SuppressWarnings("unchecked")
+    public V get(K key) throws IllegalArgumentException
+    {
+        if (key == null) throw new IllegalArgumentException();
+        return root == null ? null : (V) root.get(key, hash(key), 0);
+    }
+
+    //REQUIRES: key ≠ null
+    //EFFECTS:  Returns true if key is mapped to some value.
+    //          If key == null          throws IllegalArgumentException (unchecked).
+    public boolean containsKey(K key) throws IllegalArgumentException
+    {
+        return get(key) != null;
+    }
+
+    //REQUIRES: key ≠ null ∧ value ≠ null
+    //EFFECTS:  Returns a map equal to this, except that key is mapped to value.
+    //          If key == null ∨ value == null
+    //                                  throws IllegalArgumentException (unchecked).
+    public PersistentMap<K, V> put(K key, V value) throws IllegalArgumentException
+    {
+        if (key == null || value == null) throw new IllegalArgumentException();
+        boolean[] added = new boolean[1];
+        Trie trie = root == null ? new Bitmap(0, new Object[0]) : root;
+        Trie updated = trie.put(key, value, hash(key), 0, added);
+        if (updated == root) return this;
+        return new PersistentMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    //REQUIRES: key ≠ null
+    //EFFECTS:  Returns a map equal to this, except that key is not mapped.
+    //          If key == null          throws IllegalArgumentException (unchecked).
+    public PersistentMap<K, V> remove(K key) throws IllegalArgumentException
+    {
+        if (key == null) throw new IllegalArgumentException();
+        if (root == null) return this;
+        Trie updated = root.remove(key, hash(key), 0);
+        if (updated == root) return this;
+        return updated == null ? empty() : new PersistentMap<>(updated, size - 1);
+    }
+
+    //EFFECTS: Returns a read-only iterator over the mappings, in no particular order
+    public Iterator<Map.Entry<K, V>> iterator()
+    {
+        return new Iterator<Map.Entry<K, V>>()
+        {
+            // depth-first walk: arrays[d] is the content of the trie node at depth d
+            private final Object[][] arrays = new Object[8][];
+            private final int[] positions = new int[8];
+            private int depth = -1;
+            private Map.Entry<K, V> next;
+
+            {
+                if (root != null) push(root);
+                advance();
+            }
+
+            private void push(Trie trie)
+            {
+                arrays[++depth] = trie.array();
+                positions[depth] = 0;
+            }
+
+            @SuppressWarnings("unchecked")
+            private void advance()
+            {
+                next = null;
+                while (depth >= 0 && next == null)
+                {
+                    Object[] array = arrays[depth];
+                    int i = positions[depth];
+                    if (i >= array.length) { depth--; continue; }
+                    positions[depth] = i + 2;
+                    if (array[i] == null) push((Trie) array[i+1]);
+                    else next = new AbstractMap.SimpleImmutableEntry<>((K) array[i], (V) array[i+1]);
+                }
+            }
+
+            public boolean hasNext() { return next != null; }
+
+            public Map.Entry<K, V> next()
+            {
+                if (next == null) throw new NoSuchElementException();
+                Map.Entry<K, V> entry = next;
+                advance();
+                return entry;
+            }
+        };
+    }
+
+    // A node of the trie: array() holds pairs (key, value), or (null, subtrie)
+    private interface Trie
+    {
+        Object get(Object key, int hash, int shift);
+        Trie put(Object key, Object value, int hash, int shift, boolean[] added); // this if unchanged
+        Trie remove(Object key, int hash, int shift);   // this if unchanged, null if empty
+        Object[] array();
+    }
+
+    // Trie node indexed by 5 bits of the hash: bit i of bitmap is set if the
+    // pair for hash chunk i is stored, at position bitCount(bitmap & (2^i - 1))
+    private static final class Bitmap implements Trie
+    {
+        private final int bitmap;
+        private final Object[] array;
+
+        Bitmap(int bitmap, Object[] array)
+        {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        public Object[] array() { return array; }
+
+        private static int bit(int hash, int shift)
+        {
+            return 1 << ((hash >>> shift) & 31);
+        }
+
+        private int index(int bit)
+        {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        public Object get(Object key, int hash, int shift)
+        {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) return null;
+            int i = index(bit);
+            if (array[i] == null) return ((Trie) array[i+1]).get(key, hash, shift + 5);
+            return key.equals(array[i]) ? array[i+1] : null;
+        }
+
+        public Trie put(Object key, Object value, int hash, int shift, boolean[] added)
+        {
+            int bit = bit(hash, shift), i = index(bit);
+            if ((bitmap & bit) == 0)
+            {
+                Object[] copy = new Object[array.length + 2];
+                System.arraycopy(array, 0, copy, 0, i);
+                copy[i] = key;
+                copy[i+1] = value;
+                System.arraycopy(array, i, copy, i + 2, array.length - i);
+                added[0] = true;
+                return new Bitmap(bitmap | bit, copy);
+            }
+            if (array[i] == null)
+            {
+                Trie child = (Trie) array[i+1];
+                Trie updated = child.put(key, value, hash, shift + 5, added);
+                return updated == child ? this : with(i + 1, updated);
+            }
+            if (key.equals(array[i]))
+                return array[i+1] == value ? this : with(i + 1, value);
+
+            added[0] = true;
+            Trie merged = merge(array[i], array[i+1], hash(array[i]), key, value, hash, shift + 5);
+            Bitmap result = with(i + 1, merged);
+            result.array[i] = null;
+            return result;
+        }
+
+        private Bitmap with(int i, Object value)
+        {
+            Object[] copy = array.clone();
+            copy[i] = value;
+            return new Bitmap(bitmap, copy);
+        }
+
+        public Trie remove(Object key, int hash, int shift)
+        {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) return this;
+            int i = index(bit);
+            if (array[i] == null)
+            {
+                Trie child = (Trie) array[i+1];
+                Trie updated = child.remove(key, hash, shift + 5);
+                if (updated == child) return this;
+                if (updated == null) return without(bit, i);
+                Object[] inner = updated.array();
+                if (inner.length == 2 && inner[0] != null) // single pair: pulls it up
+                {
+                    Object[] copy = array.clone();
+                    copy[i] = inner[0];
+                    copy[i+1] = inner[1];
+                    return new Bitmap(bitmap, copy);
+                }
+                return with(i + 1, updated);
+            }
+            return key.equals(array[i]) ? without(bit, i) : this;
+        }
+
+        private Trie without(int bit, int i)
+        {
+            if (array.length == 2) return null;
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new Bitmap(bitmap & ~bit, copy);
+        }
+    }
+
+    // Returns a trie holding the two given pairs, whose keys are distinct
+    private static Trie merge(Object k1, Object v1, int h1, Object k2, Object v2, int h2, int shift)
+    {
+        if (h1 == h2) return new Collision(h1, new Object[] { k1, v1, k2, v2 });
+        int b1 = Bitmap.bit(h1, shift), b2 = Bitmap.bit(h2, shift);
+        if (b1 == b2) return new Bitmap(b1, new Object[] { null, merge(k1, v1, h1, k2, v2, h2, shift + 5) });
+        return new Bitmap(b1 | b2, Integer.compareUnsigned(b1, b2) < 0 ? new Object[] { k1, v1, k2, v2 }
+                                                                        : new Object[] { k2, v2, k1, v1 });
+    }
+
+    // Trie node holding pairs whose keys share the same hash
+    private static final class Collision implements Trie
+    {
+        private final int hash;
+        private final Object[] array;
+
+        Collision(int hash, Object[] array)
+        {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        public Object[] array() { return array; }
+
+        private int find(Object key)
+        {
+            for (int i = 0; i < array.length; i += 2)
+                if (key.equals(array[i])) return i;
+            return -1;
+        }
+
+        public Object get(Object key, int hash, int shift)
+        {
+            int i = hash == this.hash ? find(key) : -1;
+            return i == -1 ? null : array[i+1];
+        }
+
+        public Trie put(Object key, Object value, int hash, int shift, boolean[] added)
+        {
+            if (hash != this.hash) // splits: this becomes a child of a new bitmap node
+                return new Bitmap(Bitmap.bit(this.hash, shift), new Object[] { null, this })
+                           .put(key, value, hash, shift, added);
+            int i = find(key);
+            if (i != -1)
+            {
+                if (array[i+1] == value) return this;
+                Object[] copy = array.clone();
+                copy[i+1] = value;
+                return new Collision(hash, copy);
+            }
+            Object[] copy = Arrays.copyOf(array, array.length + 2);
+            copy[array.length] = key;
+            copy[array.length + 1] = value;
+            added[0] = true;
+            return new Collision(hash, copy);
+        }
+
+        public Trie remove(Object key, int hash, int shift)
+        {
+            int i = hash == this.hash ? find(key) : -1;
+            if (i == -1) return this;
+            if (array.length == 2) return null;
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new Collision(hash, copy);
+        }
+    }
+}
@@ -1,132 +1,794 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collection;
-import java.util.Queue;
-import java.util.LinkedList;
-import java.lang.Math;
 import java.util.NoSuchElementException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.AbstractMap.SimpleEntry;
-import java.lang.Boolean;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 public class SocialNetwork
 {
     //OVERVIEW: Social network implementation using HashGraph<String>.
     //          Users are identified via their names.
-    private HashGraph<String> friendsGraph;
-    private HashMap<String, Boolean> visited;
-    private HashMap<Map.Entry<String, String>, Integer> distance;
+    //          Path queries run on a CompactGraph<String> snapshot of the network,
+    //          which is rebuilt lazily after the network changes.
+    //          Point-to-point queries use a bidirectional BFS by default, which is
+    //          sound because addFriendship always inserts both edges.
+    //          Distances can be memoized in a bounded DistanceCache of BFS rows,
+    //          disabled by default, which is invalidated whenever users or
+    //          friendships change, unless the incremental mode is enabled: then
+    //          memoized rows are repaired after every new friendship and a diameter
+    //          estimate is maintained by IncrementalDiameter<String>.
+    //          Connected components are kept in a union-find ComponentIndex,
+    //          updated by new users and friendships and rebuilt lazily after
+    //          removals, so that shortestPath answers -1 for users that are not
+    //          connected without any search.
+    //          Operations can be timed and counted by GraphMetrics, published
+    //          through JMX and JFR, at the cost of a branch each when disabled.
+    //          Friendships have a weight, 1 unless set, e.g. the inverse of how
+    //          much two users interact: weightedDistance answers with Dijkstra
+    //          (bidirectional in BIDIRECTIONAL mode), or with A* guided by a
+    //          LandmarkIndex once landmarks are enabled.
+    //          Snapshots can be renumbered by a VertexOrdering for locality.
+    //          Networks can be saved to a binary MappedGraph snapshot and reopened
+    //          from it; a reopened network answers queries straight from the
+    //          mapped file and only builds its HashGraph<String> once it is
+    //          modified or browsed through getFriends, randomUser or prettyPrint.
+
+    // Strategy used by shortestPath
+    public enum SearchMode { BFS, BIDIRECTIONAL }
+
+    private HashGraph<String> friendsGraph;  // null until needed if opened from a file
+    private IndexedGraph<String> snapshot;  // null when stale
+    private BreadthFirstSearch search;     // scratch buffers reused across queries
+    private DirectionOptimizingBFS hybrid; // null unless direction optimizing
+    private ComponentIndex components;     // null when stale, indexed like friendsGraph
+    private FriendRecommender recommender; // null until needed or when stale
+    private TriangleCounter triangles;     // null until needed or when stale
+    private MultiSourceBFS batch;          // null until eccentricities() is first invoked
+    private Dijkstra dijkstra;             // null until weightedDistance is first invoked
+    private LandmarkIndex landmarks;       // null until needed or when stale
+    private int landmarkCount;             // 0: weighted queries run plain Dijkstra
+    private SearchMode mode;
+    private final GraphMetrics metrics;
+    private int searched;                  // users visited by the last shortestPath search
+    private boolean shortCircuited;        // true if the last one was answered by components
+    private VertexOrdering ordering;       // null: insertion order
+    private DistanceCache distance;
+    private SplittableRandom random;
+    private IncrementalDiameter<String> incremental; // null unless in incremental mode
+    private boolean estimated;             // true if incremental tracks the current network
 
     public SocialNetwork()
     {
+        this(new SplittableRandom());
+    }
+
+    // Creates a network whose randomUser() draws are reproducible across runs
+    public SocialNetwork(long seed)
+    {
+        this(new SplittableRandom(seed));
+    }
+
+    private SocialNetwork(SplittableRandom random)
+    {
+        this.random = random;
         friendsGraph = new HashGraph<>();
-        visited = new HashMap<>();
-        distance = new HashMap<>();
+        snapshot = null;
+        search = null;
+        mode = SearchMode.BIDIRECTIONAL;
+        distance = new DistanceCache(0, true);
+        metrics = new GraphMetrics();
+        metrics.bind(distance);
+        friendsGraph.setMetrics(metrics);
+    }
+
+    // Opens a network saved with save(Path), mapping the file instead of parsing it.
+    // Throws IOException if the file cannot be read or is not a valid snapshot.
+    public static SocialNetwork open(Path file) throws IOException
+    {
+        SocialNetwork network = new SocialNetwork();
+        network.friendsGraph = null;
+        network.snapshot = MappedGraph.open(file);
+        network.search = new BreadthFirstSearch(network.snapshot);
+        return network;
+    }
+
+    // Writes a binary snapshot of the network to file, see MappedGraph.
+    // Weights are not saved: friendships of a reopened network weigh 1.
+    public void save(Path file) throws IOException
+    {
+        MappedGraph.write(snapshot(), file);
+    }
+
+    // Returns the mutable graph, rebuilding it from the mapped snapshot the first
+    // time it is needed after open(Path)
+    private HashGraph<String> graph()
+    {
+        if (friendsGraph == null)
+        {
+            final int n = snapshot.size();
+            String[] labels = new String[n];
+            int m = 0;
+            for (int v = 0; v < n; v++)
+            {
+                labels[v] = snapshot.labelOf(v);
+                m += snapshot.degree(v);
+            }
+            int[] sources = new int[m], targets = new int[m];
+            m = 0;
+            for (int v = 0; v < n; v++)
+            {
+                for (int i = 0; i < snapshot.degree(v); i++, m++)
+                {
+                    sources[m] = v;
+                    targets[m] = snapshot.neighbor(v, i);
+                }
+            }
+            friendsGraph = new HashGraph<>(n);
+            friendsGraph.addAll(labels, sources, targets, false);
+            friendsGraph.setMetrics(metrics);
+        }
+        return friendsGraph;
     }
 
     public void addUser(String user)
     {
+        long start = metrics.start();
+        addUserUntimed(user);
+        metrics.stop(GraphMetrics.Operation.ADD_USER, start);
+    }
+
+    private void addUserUntimed(String user)
+    {
+        HashGraph<String> friendsGraph = graph();
+        if (user != null && friendsGraph.containsNode(user)) return;
         friendsGraph.addNode(user);
+        if (components != null) components.add();
+        if (incremental == null) invalidate();
+        else snapshot = null; // positions of existing users do not change
     }
 
+    // Adds every user listed in the users file (one per line) and every friendship
+    // listed in the friendships file (two users separated by blanks per line),
+    // parsing both files in parallel. Returns the loader, which reports throughput.
+    // Throws IOException if a file cannot be read or is malformed, leaving the
+    // network unchanged.
+    public GraphLoader load(Path users, Path friendships) throws IOException
+    {
+        GraphLoader loader = new GraphLoader();
+        loader.load(users, friendships);
+        HashGraph<String> friendsGraph = graph();
+        if (friendsGraph.size() == 0)
+        {
+            friendsGraph = new HashGraph<>(loader.labels().length);
+            friendsGraph.setMetrics(metrics);
+        }
+        friendsGraph.addAll(loader.labels(), loader.sources(), loader.targets(), true);
+        this.friendsGraph = friendsGraph;
+        // the tracker must follow the graph if it was just replaced
+        if (incremental != null) incremental = new IncrementalDiameter<>(friendsGraph);
+        components = null;
+        invalidate();
+        return loader;
+    }
+
+    // Removes a user along with all of their friendships
+    public void removeUser(String user)
+    {
+        long start = metrics.start();
+        graph().removeNode(user);
+        components = null; // positions change and components may split
+        invalidate();
+        metrics.stop(GraphMetrics.Operation.REMOVE_USER, start);
+    }
+
+    // Returns a read-only view of the friends of user, which reflects later changes
     public Collection<String> getFriends(String user)
     {
-        return new ArrayList<>(friendsGraph.getAdjacency(user));
+        return graph().getAdjacency(user);
+    }
+
+    // Invokes action on every friend of user, straight from the mapped file if
+    // the network was opened from one and has not been modified since
+    public void forEachFriend(String user, Consumer<? super String> action)
+    {
+        if (friendsGraph != null)
+        {
+            friendsGraph.forEachNeighbor(user, action);
+            return;
+        }
+        if (action == null) throw new IllegalArgumentException();
+        IndexedGraph<String> graph = snapshot();
+        int id = graph.indexOf(user);
+        if (id == -1) throw new NoSuchElementException();
+        for (int i = 0, degree = graph.degree(id); i < degree; i++) action.accept(graph.labelOf(graph.neighbor(id, i)));
     }
 
     public void addFriendship(String user1, String user2)
     {
-        friendsGraph.addEdge(new Edge<String>(user1, user2));
-        friendsGraph.addEdge(new Edge<String>(user2, user1));
+        long start = metrics.start();
+        addFriendshipUntimed(user1, user2, Edge.DEFAULT_WEIGHT, false);
+        metrics.stop(GraphMetrics.Operation.ADD_FRIENDSHIP, start);
+    }
+
+    // Adds a friendship with the given weight (finite and ≥ 0), or sets the weight
+    // of an existing one
+    public void addFriendship(String user1, String user2, double weight)
+    {
+        long start = metrics.start();
+        addFriendshipUntimed(user1, user2, weight, true);
+        metrics.stop(GraphMetrics.Operation.ADD_FRIENDSHIP, start);
+    }
+
+    // Returns the weight of the friendship between user1 and user2.
+    // Throws NoSuchElementException if they are not friends.
+    public double getFriendshipWeight(String user1, String user2)
+    {
+        return graph().getWeight(user1, user2);
+    }
+
+    // Adds the friendship, also setting the weight of an existing one if reweight
+    private void addFriendshipUntimed(String user1, String user2, double weight, boolean reweight)
+    {
+        HashGraph<String> friendsGraph = graph();
+        if (user1 != null && user2 != null && friendsGraph.containsNode(user1) &&
+                friendsGraph.getAdjacency(user1).contains(user2))
+        {
+            if (!reweight || friendsGraph.getWeight(user1, user2) == weight) return;
+            friendsGraph.addUndirectedEdge(user1, user2, weight);
+            if (incremental == null) invalidate();
+            else snapshot = null; // hop distances do not change
+            return;
+        }
+        friendsGraph.addUndirectedEdge(user1, user2, weight);
+        if (components != null)
+        {
+            while (components.size() < friendsGraph.size()) components.add();
+            components.union(friendsGraph.indexOf(user1), friendsGraph.indexOf(user2));
+        }
+        if (incremental == null)
+        {
+            invalidate();
+            return;
+        }
+        snapshot = null;
+        int u = friendsGraph.indexOf(user1), w = friendsGraph.indexOf(user2);
+        distance.extend(friendsGraph.size());
+        distance.forEachRow((row, source) -> incremental.repair(row, u, w, null));
+        if (estimated) incremental.friendshipAdded(user1, user2);
+    }
+
+    // Returns up to k users that user may know, i.e. friends of their friends, by
+    // decreasing score (see FriendRecommender.Score).
+    // Throws NoSuchElementException if user is not in the network.
+    public List<String> recommendFriends(String user, int k, FriendRecommender.Score score)
+    {
+        IndexedGraph<String> graph = snapshot();
+        int v = graph.indexOf(user);
+        if (v == -1) throw new NoSuchElementException();
+        if (recommender == null) recommender = new FriendRecommender(graph);
+        return labels(graph, recommender.recommend(v, k, score, null));
+    }
+
+    // Returns recommendFriends(users[i], k, score) for every i, answering the
+    // queries in parallel on the common ForkJoinPool.
+    // Throws NoSuchElementException if a user is not in the network.
+    public List<List<String>> recommendFriends(String[] users, int k, FriendRecommender.Score score)
+    {
+        if (users == null) throw new IllegalArgumentException();
+        IndexedGraph<String> graph = snapshot();
+        int[] ids = new int[users.length];
+        for (int i = 0; i < users.length; i++)
+        {
+            ids[i] = graph.indexOf(users[i]);
+            if (ids[i] == -1) throw new NoSuchElementException();
+        }
+        int[][] recommended = FriendRecommender.recommend(graph, ids, k, score, ForkJoinPool.commonPool());
+        List<List<String>> result = new ArrayList<>(users.length);
+        for (int[] r : recommended) result.add(labels(graph, r));
+        return result;
+    }
+
+    private static List<String> labels(IndexedGraph<String> graph, int[] ids)
+    {
+        List<String> labels = new ArrayList<>(ids.length);
+        for (int v : ids) labels.add(graph.labelOf(v));
+        return labels;
+    }
+
+    // Returns the triangle counts of the current snapshot, counting them in
+    // parallel on the common ForkJoinPool the first time
+    private TriangleCounter triangleCounter()
+    {
+        IndexedGraph<String> graph = snapshot();
+        if (triangles == null)
+        {
+            triangles = new TriangleCounter(graph);
+            triangles.count(ForkJoinPool.commonPool());
+        }
+        return triangles;
+    }
+
+    // Returns the number of triangles, i.e. of trios of users who are all friends
+    public long triangles()
+    {
+        return triangleCounter().count(null);
+    }
+
+    // Returns the number of triangles user belongs to.
+    // Throws NoSuchElementException if user is not in the network.
+    public long triangles(String user)
+    {
+        TriangleCounter counter = triangleCounter();
+        int v = snapshot.indexOf(user);
+        if (v == -1) throw new NoSuchElementException();
+        return counter.triangles(v);
+    }
+
+    // Returns the fraction of pairs of friends of user who are friends as well.
+    // Throws NoSuchElementException if user is not in the network.
+    public double clusteringCoefficient(String user)
+    {
+        TriangleCounter counter = triangleCounter();
+        int v = snapshot.indexOf(user);
+        if (v == -1) throw new NoSuchElementException();
+        return counter.localClustering(v);
+    }
+
+    // Returns the average clustering coefficient of the users
+    public double averageClustering()
+    {
+        return triangleCounter().averageClustering();
+    }
+
+    // Returns the global transitivity, i.e. the fraction of closed wedges (paths
+    // of two friendships whose ends are friends as well)
+    public double transitivity()
+    {
+        return triangleCounter().transitivity();
     }
 
-    // Returns a random user from the ones already inserted
+    // Estimates the transitivity from the given number of random wedges, without
+    // counting triangles: the standard error is at most 1 / (2 √samples)
+    public double approximateTransitivity(int samples)
+    {
+        return TriangleCounter.sampleTransitivity(snapshot(), samples, random);
+    }
+
+    // Returns a user drawn uniformly at random from the ones already inserted
     public String randomUser()
     {
-        int rand = (int) (Math.random() * friendsGraph.size());
-        for(String user : friendsGraph) { if(--rand <= 0) return user; }
+        return graph().randomNode(random);
+    }
+
+    // Returns a user drawn uniformly at random using the given generator
+    public String randomUser(SplittableRandom random)
+    {
+        return graph().randomNode(random);
+    }
 
-        throw new NoSuchElementException();
+    // Marks the snapshot and every memoized distance as stale
+    private void invalidate()
+    {
+        snapshot = null;
+        distance.clear();
+        estimated = false;
     }
 
-    // Marks a node as visited or not visited
-    private void setVisited(String user, Boolean visited)
+    // Returns an up to date snapshot of the network, rebinding the BFS engine to it
+    private IndexedGraph<String> snapshot()
     {
-        this.visited.put(user, visited);
+        if (snapshot == null)
+        {
+            CompactGraph<String> frozen = friendsGraph.freeze();
+            // incremental rows are indexed by insertion position, see shortestPath
+            if (ordering != null && incremental == null) frozen = frozen.relabel(ordering.order(frozen));
+            snapshot = frozen;
+            if (search == null) search = new BreadthFirstSearch(snapshot);
+            else search.reset(snapshot);
+            if (hybrid != null) hybrid.reset(snapshot);
+            if (batch != null) batch.reset(snapshot);
+            if (dijkstra != null) dijkstra.reset(snapshot);
+            landmarks = null;
+            recommender = null;
+            triangles = null;
+        }
+        return snapshot;
     }
 
-    // Sets minimum distance between source and destination users
-    private void setDistance(String source, String destination, int distance)
+    // Returns an immutable version of the network, in time proportional to the
+    // changes made since the previous call. Long analytics, such as
+    // exactDiameter(GraphSnapshot), can run on it from another thread while
+    // this network keeps changing.
+    public GraphSnapshot<String> version()
     {
-        this.distance.put(new SimpleEntry<>(source, destination), distance);
+        return graph().snapshot();
     }
 
-    private boolean isVisited(String user)
+    // Computes the exact diameter of a version of a network (iFUB)
+    public static int exactDiameter(GraphSnapshot<String> version)
     {
-        return visited.get(user);
+        return new FringeDiameter(version.freeze()).compute(0);
     }
 
-    private int getDistance(String source, String destination)
+    // Returns the component index, rebuilding it if stale
+    private ComponentIndex componentIndex()
     {
-        return distance.getOrDefault(new SimpleEntry<>(source, destination), -1);
+        if (components == null)
+        {
+            HashGraph<String> friendsGraph = graph();
+            final int n = friendsGraph.size();
+            components = new ComponentIndex(n);
+            for (int v = 0; v < n; v++) components.add();
+            for (int v = 0; v < n; v++)
+                for (String friend : friendsGraph.getAdjacency(friendsGraph.labelOf(v)))
+                    components.union(v, friendsGraph.indexOf(friend));
+        }
+        return components;
     }
 
-    // Computes network diameter
+    // Returns the position of user inside friendsGraph, throwing
+    // NoSuchElementException if user is not in the network
+    private int position(String user)
+    {
+        int v = graph().indexOf(user);
+        if (v == -1) throw new NoSuchElementException();
+        return v;
+    }
+
+    // Returns true if a chain of friendships links the two users.
+    // Throws NoSuchElementException if either user is not in the network.
+    public boolean areConnected(String user1, String user2)
+    {
+        return componentIndex().connected(position(user1), position(user2));
+    }
+
+    // Returns the number of users connected to user, user included.
+    // Throws NoSuchElementException if user is not in the network.
+    public int componentSize(String user)
+    {
+        return componentIndex().componentSize(position(user));
+    }
+
+    // Returns the number of connected components of the network
+    public int componentCount()
+    {
+        return componentIndex().count();
+    }
+
+    // Returns the users of every connected component, largest components first
+    public List<List<String>> components()
+    {
+        ComponentIndex index = componentIndex();
+        int[] start = new int[index.count() + 1];
+        int[] users = index.components(start);
+        List<List<String>> components = new ArrayList<>(index.count());
+        for (int c = 0; c < index.count(); c++)
+        {
+            List<String> component = new ArrayList<>(start[c+1] - start[c]);
+            for (int i = start[c]; i < start[c+1]; i++) component.add(friendsGraph.labelOf(users[i]));
+            components.add(component);
+        }
+        return components;
+    }
+
+    // Returns the diameter of the connected component of user (iFUB).
+    // Throws NoSuchElementException if user is not in the network.
+    public int componentDiameter(String user)
+    {
+        IndexedGraph<String> graph = snapshot();
+        int v = graph.indexOf(user);
+        if (v == -1) throw new NoSuchElementException();
+        return new FringeDiameter(graph).component(v, 0);
+    }
+
+    // Computes network diameter, i.e. the largest distance between two connected
+    // users, hence the largest diameter among the connected components. Runs
+    // one BFS per user in parallel, up to 256 users at a time (see MultiSourceBFS;
+    // fewer on networks too large for that many per worker) unless direction
+    // optimizing
     public int diameter()
     {
-        int max = -1;
-        for (String source : friendsGraph)
+        try
         {
-            for (String dest : friendsGraph)
-            {
-                int distance = 0;
-                if (!source.equals(dest))
-                    if ((distance = getDistance(source, dest)) == -1) // checks if distance has already been computed (memoization)
-                        distance = shortestPath(source, dest);
+            return diameter(0, TimeUnit.SECONDS, null);
+        }
+        catch (TimeoutException e)
+        {
+            throw new IllegalStateException(e); // no time limit was set
+        }
+    }
 
-                if (distance > max) max = distance;
-            }
+    // Computes network diameter on the common ForkJoinPool, giving up after the
+    // given time limit (≤ 0 means no limit) and reporting progress if progress ≠ null.
+    // Interrupting the calling thread cancels the computation.
+    public int diameter(long timeout, TimeUnit unit, ParallelDiameter.Progress progress) throws TimeoutException
+    {
+        ParallelDiameter diameter = new ParallelDiameter(snapshot());
+        if (hybrid != null) diameter.setDirectionOptimizing(true);
+        else diameter.setMultiSource(MultiSourceBFS.MAX_WORDS);
+        long start = metrics.diameterStarted();
+        int d = -1;
+        try
+        {
+            return d = diameter.compute(ForkJoinPool.commonPool(), timeout, unit, progress);
+        }
+        finally
+        {
+            metrics.diameterFinished("parallel", d, start);
+        }
+    }
+
+    // Returns the eccentricity of every given user, i.e. the largest number of hops
+    // to any user they are connected to, running one BFS per 256 users. If
+    // histograms ≠ null, histograms[i] is set to a new array whose d-th entry is
+    // the number of users at d hops from users[i].
+    // Throws NoSuchElementException if a user is not in the network.
+    public int[] eccentricities(String[] users, int[][] histograms)
+    {
+        if (users == null || (histograms != null && histograms.length < users.length))
+            throw new IllegalArgumentException();
+        IndexedGraph<String> graph = snapshot();
+        int[] sources = new int[users.length];
+        for (int i = 0; i < users.length; i++)
+        {
+            sources[i] = graph.indexOf(users[i]);
+            if (sources[i] == -1) throw new NoSuchElementException();
+        }
+        if (batch == null) batch = new MultiSourceBFS(graph, MultiSourceBFS.MAX_WORDS);
+        int[] eccentricities = new int[users.length];
+        batch.eccentricities(sources, eccentricities, histograms);
+        return eccentricities;
+    }
+
+    // Computes the exact network diameter running a few BFS traversals (iFUB)
+    public int exactDiameter()
+    {
+        return approximateDiameter(0);
+    }
+
+    // Returns a lower bound d on the network diameter D such that d ≤ D ≤ d + tolerance,
+    // usually running fewer BFS traversals than exactDiameter
+    public int approximateDiameter(int tolerance)
+    {
+        FringeDiameter diameter = new FringeDiameter(snapshot());
+        long start = metrics.diameterStarted();
+        int d = -1;
+        try
+        {
+            return d = diameter.compute(tolerance);
+        }
+        finally
+        {
+            metrics.diameterFinished(tolerance == 0 ? "iFUB" : "iFUB, tolerance " + tolerance, d, start);
+        }
+    }
+
+    // Enables or disables the incremental mode, disabled by default. In incremental
+    // mode new users and friendships repair the memoized distances instead of
+    // dropping them, and diameterEstimate() is kept up to date; removing users
+    // still drops everything.
+    public void setIncremental(boolean enabled)
+    {
+        invalidate();
+        incremental = enabled ? new IncrementalDiameter<>(graph()) : null;
+    }
+
+    public boolean isIncremental()
+    {
+        return incremental != null;
+    }
+
+    // Returns a lower bound on the network diameter, maintained under new users and
+    // friendships at the cost of repairing two BFS rows. It is exact when first
+    // computed (iFUB) and again after every removal, but may lag behind the true
+    // diameter as friendships are added.
+    // Throws IllegalStateException if the incremental mode is disabled.
+    public int diameterEstimate()
+    {
+        if (incremental == null) throw new IllegalStateException();
+        if (!estimated)
+        {
+            incremental.reset(snapshot());
+            estimated = true;
         }
-        return max;
+        return incremental.estimate();
     }
 
     //BFS
     public int shortestPath(String source, String destination)
     {
-        Queue<String> toVisit = new LinkedList<>();
+        long start = metrics.start();
+        if (start == 0) return path(source, destination);
+        int d = path(source, destination);
+        metrics.shortestPath(source, destination, d, searched, shortCircuited, start);
+        return d;
+    }
 
-        for(String user : friendsGraph) 
+    // Answers shortestPath, setting searched and shortCircuited
+    private int path(String source, String destination)
+    {
+        searched = 0;
+        shortCircuited = false;
+        boolean missed = false;
+        if (incremental != null && snapshot == null && distance.capacity() > 0)
         {
-            setVisited(user, false);
-            setDistance(source, user, -1);
+            // repaired rows are indexed like the HashGraph, no snapshot needed
+            int from = friendsGraph.indexOf(source);
+            if (from == -1) throw new NoSuchElementException();
+            int to = friendsGraph.indexOf(destination);
+            if (to == -1) return -1;
+            int cached = distance.distance(from, to);
+            if (cached != DistanceCache.MISS) return cached;
+            missed = true;
         }
 
-        setDistance(source, source, 0);
-        toVisit.add(source);
-
-        while(toVisit.size() > 0) 
+        IndexedGraph<String> graph = snapshot();
+        int from = graph.indexOf(source);
+        if (from == -1) throw new NoSuchElementException();
+        int to = graph.indexOf(destination);
+        if (to == -1) return -1;
+        if (friendsGraph != null &&
+                !componentIndex().connected(friendsGraph.indexOf(source), friendsGraph.indexOf(destination)))
         {
-            String user = toVisit.poll();
-            setVisited(user, true);
-            int current = getDistance(source, user);
+            shortCircuited = true;
+            return -1;
+        }
 
-            for(String adjacent : friendsGraph.getAdjacency(user))
+        if (distance.capacity() > 0)
+        {
+            int cached = missed ? DistanceCache.MISS : distance.distance(from, to);
+            if (cached != DistanceCache.MISS) return cached;
+            int[] row = distance.newRow(from, graph.size());
+            if (row != null)
             {
-                if (!isVisited(adjacent))
-                {
-                    setVisited(adjacent, true);
-                    setDistance(source, adjacent, current + 1);
-                    toVisit.add(adjacent);
-                }
+                if (hybrid != null) hybrid.distances(from, row);
+                else search.distances(from, row);
+                searched = hybrid != null ? hybrid.lastVisited() : search.lastVisited();
+                return row[to];
             }
         }
-        return getDistance(source, destination);
+
+        int d = mode == SearchMode.BIDIRECTIONAL ? search.bidirectionalDistance(from, to)
+                                                 : search.distance(from, to);
+        searched = search.lastVisited();
+        return d;
+    }
+
+    // Returns the weight of a lightest path between source and destination, i.e.
+    // the least sum of the weights of its friendships, or -1 if destination is
+    // unknown or unreachable.
+    // Throws NoSuchElementException if source is not in the network.
+    public double weightedDistance(String source, String destination)
+    {
+        long start = metrics.start();
+        double d = weightedPath(source, destination);
+        metrics.stop(GraphMetrics.Operation.WEIGHTED_PATH, start);
+        return d == Double.POSITIVE_INFINITY ? -1 : d;
+    }
+
+    // Answers weightedDistance, returning +∞ if destination is unknown or unreachable
+    private double weightedPath(String source, String destination)
+    {
+        IndexedGraph<String> graph = snapshot();
+        int from = graph.indexOf(source);
+        if (from == -1) throw new NoSuchElementException();
+        int to = graph.indexOf(destination);
+        if (to == -1) return Double.POSITIVE_INFINITY;
+
+        double d;
+        if (friendsGraph != null &&
+                !componentIndex().connected(friendsGraph.indexOf(source), friendsGraph.indexOf(destination)))
+            d = Double.POSITIVE_INFINITY;
+        else if (landmarkCount > 0)
+        {
+            if (landmarks == null) landmarks = new LandmarkIndex(graph, landmarkCount);
+            d = landmarks.distance(from, to);
+        }
+        else
+        {
+            if (dijkstra == null) dijkstra = new Dijkstra(graph);
+            d = mode == SearchMode.BIDIRECTIONAL ? dijkstra.bidirectionalDistance(from, to)
+                                                 : dijkstra.distance(from, to);
+        }
+        return d;
+    }
+
+    // Makes weightedDistance run A* guided by the given number of landmarks
+    // (0, the default, runs Dijkstra). Landmark distances are precomputed by the
+    // first weighted query after every change of the network, at the cost of
+    // one Dijkstra search and 8 bytes per user for each landmark.
+    public void setLandmarks(int count)
+    {
+        if (count < 0) throw new IllegalArgumentException();
+        if (count != landmarkCount) landmarks = null;
+        landmarkCount = count;
+    }
+
+    public int getLandmarks()
+    {
+        return landmarkCount;
+    }
+
+    // Bounds the memory used to memoize shortestPath distances to the given number
+    // of bytes (0 disables memoization). Each memoized source costs 4 bytes per user.
+    public void setDistanceCacheCapacity(long bytes)
+    {
+        distance.setCapacity(bytes);
+    }
+
+    // Returns the metrics of this network, disabled by default; they can be
+    // enabled at runtime, also through JMX after GraphMetrics.register(String)
+    public GraphMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    // Returns the memoized distances, e.g. to inspect hit/miss/eviction counters
+    public DistanceCache getDistanceCache()
+    {
+        return distance;
+    }
+
+    // Selects the strategy used by shortestPath
+    public void setSearchMode(SearchMode mode)
+    {
+        if (mode == null) throw new IllegalArgumentException();
+        this.mode = mode;
+    }
+
+    public SearchMode getSearchMode()
+    {
+        return mode;
+    }
+
+    // Computes memoized distance rows and the per-user searches of diameter() with
+    // a direction optimizing BFS if enabled (disabled by default), which expands
+    // large frontiers bottom-up, in parallel on the common ForkJoinPool for rows
+    public void setDirectionOptimizing(boolean enabled)
+    {
+        if (!enabled) hybrid = null;
+        else if (hybrid == null)
+            hybrid = new DirectionOptimizingBFS(snapshot(), ForkJoinPool.commonPool());
+    }
+
+    public boolean isDirectionOptimizing()
+    {
+        return hybrid != null;
+    }
+
+    // Renumbers the users of the snapshots queries run on by the given ordering,
+    // or by insertion order if ordering == null (the default). The ordering is
+    // ignored in incremental mode, whose repaired distances are indexed by
+    // insertion order.
+    public void setVertexOrdering(VertexOrdering ordering)
+    {
+        if (ordering == this.ordering) return;
+        this.ordering = ordering;
+        if (friendsGraph != null) invalidate();
+    }
+
+    public VertexOrdering getVertexOrdering()
+    {
+        return ordering;
+    }
+
+    // Returns the number of users visited by the last shortestPath query, 0 if it
+    // was answered without a search (memoized distance, different components)
+    public int lastVisited()
+    {
+        return searched;
     }
 
     // Prints the network in a nice format
     public void prettyPrint()
     {
-        System.out.println("Network:\n" + friendsGraph.toString());
+        System.out.println("Network:\n" + graph().toString());
     }
 }
 
@@ -0,0 +1,284 @@
+import java.lang.IllegalArgumentException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class TriangleCounter
+{
+    /* OVERVIEW:
+     * The class TriangleCounter counts the triangles of a symmetric IndexedGraph
+     * and derives clustering coefficients from them.
+     * Nodes are ranked by increasing degree (ties by id) and every connection is
+     * oriented from the lower to the higher rank, so that each triangle
+     * {u, v, w} with rank(u) < rank(v) < rank(w) is found exactly once, from u,
+     * as a common element of the forward adjacencies of u and v. Forward
+     * adjacencies are stored by rank in CSR form and sorted, so each check is a
+     * linear merge of two int slices; orienting towards the higher degree
+     * bounds every forward degree by O(√m), hence the whole count by O(m √m)
+     * (the "forward" algorithm of Schank and Wagner).
+     * count(pool) splits the ranks across a ForkJoinPool; every worker adds the
+     * triangles it finds to its own array of per-node counts, which are summed
+     * once all the tasks are done, so no two tasks ever write the same location.
+     * sampleTransitivity estimates the transitivity from uniformly sampled
+     * wedges, in time independent of the number of triangles.
+     *
+     * IR:  - graph ≠ null ∧ graph is symmetric
+     *      - order is a permutation of [0, n) sorting the ids by degree, and
+     *        the rank of order[r] is r
+     *      - forward[offsets[r] .. offsets[r+1]) holds the sorted ranks s > r of
+     *        the nodes adjacent to order[r]
+     *      - counted ⇒ triangles[v] == number of triangles containing v
+     */
+
+    private final IndexedGraph<?> graph;
+    private final int[] order;          // rank -> id
+    private final int[] offsets;
+    private final int[] forward;
+    private long[] triangles;           // per node, once counted
+    private long total;
+    private boolean counted;
+
+    //REQUIRES: graph ≠ null
+    //          graph is symmetric
+    //EFFECTS:  Prepares the forward adjacencies of graph, in O(n + m log m).
+    //          If graph == null        throws IllegalArgumentException (unchecked).
+    public TriangleCounter(IndexedGraph<?> graph) throws IllegalArgumentException
+    {
+        if (graph == null) throw new IllegalArgumentException();
+        this.graph = graph;
+        final int n = graph.size();
+
+        // ranks by degree, stable by id (counting sort)
+        int max = 0;
+        for (int v = 0; v < n; v++) max = Math.max(max, graph.degree(v));
+        int[] start = new int[max + 2];
+        for (int v = 0; v < n; v++) start[graph.degree(v) + 1]++;
+        for (int d = 0; d <= max; d++) start[d+1] += start[d];
+        order = new int[n];
+        int[] rank = new int[n];
+        for (int v = 0; v < n; v++)
+        {
+            rank[v] = start[graph.degree(v)]++;
+            order[rank[v]] = v;
+        }
+
+        offsets = new int[n + 1];
+        for (int r = 0; r < n; r++)
+        {
+            int v = order[r], higher = 0;
+            for (int i = 0; i < graph.degree(v); i++) if (rank[graph.neighbor(v, i)] > r) higher++;
+            offsets[r+1] = offsets[r] + higher;
+        }
+        forward = new int[offsets[n]];
+        for (int r = 0; r < n; r++)
+        {
+            int v = order[r], e = offsets[r];
+            for (int i = 0; i < graph.degree(v); i++)
+            {
+                int s = rank[graph.neighbor(v, i)];
+                if (s > r) forward[e++] = s;
+            }
+            Arrays.sort(forward, offsets[r], e);
+        }
+    }
+
+    //REQUIRES: graph is symmetric
+    //MODIFIES: this
+    //EFFECTS:  Counts the triangles of graph, on pool if pool ≠ null, sequentially
+    //          otherwise, and returns their number. Later calls return it at once.
+    public long count(ForkJoinPool pool)
+    {
+        if (counted) return total;
+        final int n = order.length;
+        ConcurrentLinkedQueue<long[]> partials = new ConcurrentLinkedQueue<>();
+        if (pool == null) partials.add(new long[n]);
+        Ranks all = new Ranks(partials, 0, n, pool == null ? n : Math.max(64, n / (pool.getParallelism() * 64)));
+        if (pool == null) all.compute();
+        else pool.invoke(all);
+
+        // partial counts are indexed by rank
+        long[] byRank = partials.poll();
+        for (long[] partial; (partial = partials.poll()) != null; )
+            for (int r = 0; r < n; r++) byRank[r] += partial[r];
+        triangles = new long[n];
+        long sum = 0;
+        for (int r = 0; byRank != null && r < n; r++)
+        {
+            triangles[order[r]] = byRank[r];
+            sum += byRank[r];
+        }
+        total = sum / 3;
+        counted = true;
+        return total;
+    }
+
+    // Adds to partial[r], partial[s], partial[t] every triangle r < s < t found
+    // from the ranks r in [from, to)
+    private void count(int from, int to, long[] partial)
+    {
+        for (int r = from; r < to; r++)
+        {
+            for (int i = offsets[r]; i < offsets[r+1]; i++)
+            {
+                int s = forward[i];
+                int a = i + 1, b = offsets[s];  // forward(r) above s, and forward(s)
+                int endA = offsets[r+1], endB = offsets[s+1];
+                while (a < endA && b < endB)
+                {
+                    if (forward[a] < forward[b]) a++;
+                    else if (forward[a] > forward[b]) b++;
+                    else
+                    {
+                        partial[r]++;
+                        partial[s]++;
+                        partial[forward[a]]++;
+                        a++;
+                        b++;
+                    }
+                }
+            }
+        }
+    }
+
+    // The ranks [from, to), split until threshold; leaves borrow a partial array
+    private class Ranks extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final ConcurrentLinkedQueue<long[]> partials;
+        private final int from, to, threshold;
+
+        Ranks(ConcurrentLinkedQueue<long[]> partials, int from, int to, int threshold)
+        {
+            this.partials = partials;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > threshold)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Ranks(partials, from, middle, threshold), new Ranks(partials, middle, to, threshold));
+                return;
+            }
+            long[] partial = partials.poll();
+            if (partial == null) partial = new long[order.length];
+            count(from, to, partial);
+            partials.offer(partial);
+        }
+    }
+
+    //REQUIRES: count(ForkJoinPool) has been invoked
+    //          0 ≤ v < graph.size()
+    //EFFECTS:  Returns the number of triangles containing the node with id v.
+    //          If count has not been invoked
+    //                                  throws IllegalStateException (unchecked).
+    public long triangles(int v) throws IllegalStateException
+    {
+        if (!counted) throw new IllegalStateException();
+        return triangles[v];
+    }
+
+    //REQUIRES: count(ForkJoinPool) has been invoked
+    //          0 ≤ v < graph.size()
+    //EFFECTS:  Returns the local clustering coefficient of v, i.e. the fraction of
+    //          pairs of its neighbors that are connected (0 if degree(v) < 2).
+    //          If count has not been invoked
+    //                                  throws IllegalStateException (unchecked).
+    public double localClustering(int v) throws IllegalStateException
+    {
+        long pairs = pairs(graph.degree(v));
+        return pairs == 0 ? 0 : triangles(v) / (double) pairs;
+    }
+
+    //REQUIRES: count(ForkJoinPool) has been invoked
+    //EFFECTS:  Returns the average of the local clustering coefficients (0 if the
+    //          graph is empty).
+    //          If count has not been invoked
+    //                                  throws IllegalStateException (unchecked).
+    public double averageClustering() throws IllegalStateException
+    {
+        double sum = 0;
+        for (int v = 0; v < order.length; v++) sum += localClustering(v);
+        return order.length == 0 ? 0 : sum / order.length;
+    }
+
+    //EFFECTS: Returns the number of wedges, i.e. of paths of two connections
+    public long wedges()
+    {
+        long wedges = 0;
+        for (int v = 0; v < order.length; v++) wedges += pairs(graph.degree(v));
+        return wedges;
+    }
+
+    //REQUIRES: count(ForkJoinPool) has been invoked
+    //EFFECTS:  Returns the global transitivity, i.e. 3 * triangles / wedges (0 if
+    //          there are no wedges).
+    //          If count has not been invoked
+    //                                  throws IllegalStateException (unchecked).
+    public double transitivity() throws IllegalStateException
+    {
+        if (!counted) throw new IllegalStateException();
+        long wedges = wedges();
+        return wedges == 0 ? 0 : 3.0 * total / wedges;
+    }
+
+    private static long pairs(long degree)
+    {
+        return degree * (degree - 1) / 2;
+    }
+
+    //REQUIRES: graph ≠ null ∧ samples > 0 ∧ random ≠ null
+    //          graph is symmetric
+    //EFFECTS:  Returns an estimate of the transitivity of graph: the fraction of
+    //          closed wedges among samples wedges drawn uniformly at random, whose
+    //          standard error is at most 1 / (2 √samples). Each sample costs a
+    //          binary search and a scan of the smaller adjacency of its ends.
+    //          Returns 0 if graph has no wedges.
+    //          If graph == null ∨ samples ≤ 0 ∨ random == null
+    //                                  throws IllegalArgumentException (unchecked).
+    public static double sampleTransitivity(IndexedGraph<?> graph, int samples, SplittableRandom random)
+        throws IllegalArgumentException
+    {
+        if (graph == null || samples <= 0 || random == null) throw new IllegalArgumentException();
+        final int n = graph.size();
+        long[] cumulative = new long[n + 1];    // wedges centered at nodes < v
+        for (int v = 0; v < n; v++) cumulative[v+1] = cumulative[v] + pairs(graph.degree(v));
+        if (cumulative[n] == 0) return 0;
+
+        int closed = 0;
+        for (int i = 0; i < samples; i++)
+        {
+            // a center with probability proportional to its wedges, then two
+            // distinct neighbors of it
+            long x = random.nextLong(cumulative[n]);
+            int low = 0, high = n;  // last center with cumulative[center] ≤ x
+            while (high - low > 1)
+            {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] <= x) low = middle;
+                else high = middle;
+            }
+            int center = low;
+            int degree = graph.degree(center);
+            int a = random.nextInt(degree), b = random.nextInt(degree - 1);
+            if (b >= a) b++;
+            int u = graph.neighbor(center, a), w = graph.neighbor(center, b);
+            if (graph.degree(u) > graph.degree(w)) { int t = u; u = w; w = t; }
+            for (int j = 0; j < graph.degree(u); j++)
+            {
+                if (graph.neighbor(u, j) == w)
+                {
+                    closed++;
+                    break;
+                }
+            }
+        }
+        return (double) closed / samples;
+    }
+}
@@ -0,0 +1,183 @@
+import java.lang.IllegalArgumentException;
+import java.util.Arrays;
+
+public enum VertexOrdering
+{
+    /* OVERVIEW:
+     * Strategies to renumber the nodes of an IndexedGraph so that nodes visited
+     * close in time by a traversal also lie close in memory. Ids of a graph
+     * built from HashGraph<E>.freeze() follow insertion order, e.g. the order of
+     * the users file, so the neighbors of a node are scattered over the whole
+     * CSR arrays and almost every hop of a BFS misses the cache; renumbering
+     * with one of these orders and CompactGraph<E>.relabel(int[]) keeps most
+     * neighbor ids, and their distance or stamp entries, within a few lines.
+     * order(graph) returns a permutation order such that order[v'] is the old
+     * id of the node getting the new id v'.
+     */
+
+    // Nodes in the order a BFS visits them, every component starting from its
+    // node of highest degree
+    BFS,
+
+    // Reverse Cuthill–McKee: a BFS from a node of minimum degree in every
+    // component, visiting neighbors by increasing degree, then reversed. It
+    // narrows the band of non zero entries of the adjacency matrix.
+    REVERSE_CUTHILL_MCKEE,
+
+    // Nodes by decreasing degree: hubs, which most paths cross, share a few lines
+    DEGREE,
+
+    // Nodes grouped by community, as found by a few rounds of label propagation,
+    // communities and their members in BFS order: an approximation of Rabbit
+    // Order and Gorder, which pack densely connected nodes together.
+    COMMUNITY;
+
+    private static final int PROPAGATION_ROUNDS = 8;
+
+    //REQUIRES: graph ≠ null
+    //EFFECTS:  Returns a new permutation of [0, graph.size()) listing the old ids
+    //          of the nodes by new id.
+    //          If graph == null        throws IllegalArgumentException (unchecked).
+    public int[] order(IndexedGraph<?> graph) throws IllegalArgumentException
+    {
+        if (graph == null) throw new IllegalArgumentException();
+        switch (this)
+        {
+            case BFS:                   return breadthFirst(graph, byDegree(graph, false), false);
+            case REVERSE_CUTHILL_MCKEE: return reverse(breadthFirst(graph, byDegree(graph, true), true));
+            case DEGREE:                return byDegree(graph, false);
+            default:                    return byCommunity(graph);
+        }
+    }
+
+    //REQUIRES: order ≠ null
+    //EFFECTS:  Returns the inverse permutation of order, i.e. the new id of every old id.
+    public static int[] inverse(int[] order)
+    {
+        int[] inverse = new int[order.length];
+        for (int v = 0; v < order.length; v++) inverse[order[v]] = v;
+        return inverse;
+    }
+
+    // Returns the ids sorted by degree (stable counting sort)
+    private static int[] byDegree(IndexedGraph<?> graph, boolean ascending)
+    {
+        final int n = graph.size();
+        int max = 0;
+        for (int v = 0; v < n; v++) max = Math.max(max, graph.degree(v));
+        int[] start = new int[max + 2];
+        for (int v = 0; v < n; v++) start[key(graph.degree(v), max, ascending) + 1]++;
+        for (int d = 0; d <= max; d++) start[d+1] += start[d];
+        int[] order = new int[n];
+        for (int v = 0; v < n; v++) order[start[key(graph.degree(v), max, ascending)]++] = v;
+        return order;
+    }
+
+    private static int key(int degree, int max, boolean ascending)
+    {
+        return ascending ? degree : max - degree;
+    }
+
+    // Returns the ids in the order of a BFS started from every unvisited node of
+    // roots in turn; if byDegree, the neighbors of each node are enqueued by
+    // increasing degree, ties broken by id
+    private static int[] breadthFirst(IndexedGraph<?> graph, int[] roots, boolean byDegree)
+    {
+        final int n = graph.size();
+        int[] order = new int[n];
+        boolean[] visited = new boolean[n];
+        long[] keys = new long[16];
+        int tail = 0;
+        for (int root : roots)
+        {
+            if (visited[root]) continue;
+            visited[root] = true;
+            int head = tail;
+            order[tail++] = root;
+            while (head < tail)
+            {
+                int v = order[head++], first = tail, degree = graph.degree(v);
+                for (int i = 0; i < degree; i++)
+                {
+                    int w = graph.neighbor(v, i);
+                    if (visited[w]) continue;
+                    visited[w] = true;
+                    order[tail++] = w;
+                }
+                if (!byDegree || tail - first < 2) continue;
+                if (keys.length < tail - first) keys = new long[Math.max(tail - first, 2 * keys.length)];
+                for (int i = first; i < tail; i++) keys[i-first] = (long) graph.degree(order[i]) << 32 | order[i];
+                Arrays.sort(keys, 0, tail - first);
+                for (int i = first; i < tail; i++) order[i] = (int) keys[i-first];
+            }
+        }
+        return order;
+    }
+
+    private static int[] reverse(int[] order)
+    {
+        for (int i = 0, j = order.length - 1; i < j; i++, j--)
+        {
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return order;
+    }
+
+    // Returns the ids grouped by the communities found by label propagation
+    private static int[] byCommunity(IndexedGraph<?> graph)
+    {
+        final int n = graph.size();
+        int[] community = new int[n];
+        for (int v = 0; v < n; v++) community[v] = v;
+
+        // every node joins the community most frequent among its neighbors,
+        // staying in its own on ties so that the propagation settles
+        int[] count = new int[n], touched = new int[16];
+        for (int round = 0; round < PROPAGATION_ROUNDS; round++)
+        {
+            boolean changed = false;
+            for (int v = 0; v < n; v++)
+            {
+                int degree = graph.degree(v), seen = 0;
+                if (degree == 0) continue;
+                if (touched.length < degree) touched = new int[Math.max(degree, 2 * touched.length)];
+                int best = community[v], bestCount = 0;
+                for (int i = 0; i < degree; i++)
+                {
+                    int c = community[graph.neighbor(v, i)];
+                    if (count[c]++ == 0) touched[seen++] = c;
+                    if (count[c] > bestCount)
+                    {
+                        best = c;
+                        bestCount = count[c];
+                    }
+                }
+                if (count[community[v]] == bestCount) best = community[v];
+                for (int i = 0; i < seen; i++) count[touched[i]] = 0;
+                if (best != community[v])
+                {
+                    community[v] = best;
+                    changed = true;
+                }
+            }
+            if (!changed) break;
+        }
+
+        // communities are ranked by their first node in BFS order, and the nodes
+        // sorted by community rank, stable with respect to BFS order
+        int[] visit = breadthFirst(graph, byDegree(graph, false), false);
+        int[] rank = count; // all zero again
+        Arrays.fill(rank, -1);
+        int communities = 0;
+        for (int v : visit)
+            if (rank[community[v]] == -1) rank[community[v]] = communities++;
+        int[] start = new int[communities + 1];
+        for (int v = 0; v < n; v++) start[rank[community[v]] + 1]++;
+        for (int c = 0; c < communities; c++) start[c+1] += start[c];
+        int[] order = new int[n];
+        for (int v : visit) order[start[rank[community[v]]]++] = v;
+        return order;
+    }
+}